@@ -4,5 +4,11 @@ public interface Move {
 	
 	public MoveType getMoveType();
 	
+	/*
+	 * Zero-based row the move acts on. For slides this is the row of the square
+	 * that moves into the blank.
+	 */
+	public int getRow();
+	
 	public String getMoveDescription();
 }
@@ -0,0 +1,208 @@
+package moves;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Moves compiled into permutations of a decoder's cells, which are numbered row
+ * by row. A permutation p takes a board to the board whose cell i holds what
+ * was in cell p[i]. Rotations move the same cells wherever the blank is, but a
+ * slide moves the square above or below the blank, so every move is compiled
+ * once for each cell the blank can be in. Applying or composing a compiled move
+ * is then a single pass over the cells, with no checks left to do.
+ */
+public final class MoveEngine {
+
+	private final int numRows;
+	private final int numCols;
+	private final int fixedRow;
+	/*
+	 * Indexed by move number, then blank cell. Null where the move can't be made
+	 * with the blank in that cell.
+	 */
+	private final int[][][] permutations;
+	/*
+	 * Cell of the blank after the move, or -1 where the move can't be made
+	 */
+	private final int[][] blankCellsAfter;
+
+	/*
+	 * fixedRow is the row that can't be rotated
+	 */
+	public MoveEngine(int numRows, int numCols, int fixedRow) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.fixedRow = fixedRow;
+		int numCells = numRows * numCols;
+		int numMoves = numCells + 2 * numRows;
+		permutations = new int[numMoves][numCells][];
+		blankCellsAfter = new int[numMoves][numCells];
+		for (int[] blankCells : blankCellsAfter) {
+			Arrays.fill(blankCells, -1);
+		}
+		for (int rowNum = 0; rowNum < numRows; rowNum++) {
+			if (rowNum == fixedRow) {
+				continue;
+			}
+			for (int shift = 0; shift < numCols; shift++) {
+				compileRotation(rowNum, shift);
+			}
+		}
+		for (int rowNum = 0; rowNum < numRows; rowNum++) {
+			if (rowNum < numRows - 1) {
+				compileSlide(rowNum, true);
+			}
+			if (rowNum > 0) {
+				compileSlide(rowNum, false);
+			}
+		}
+	}
+
+	public int getNumCells() {
+		return numRows * numCols;
+	}
+
+	/*
+	 * Compact number of the move, or -1 if it can never be made on this decoder.
+	 * A rotation and the rotation the other way that ends in the same place get
+	 * the same number.
+	 */
+	public int getMoveNum(Move move) {
+		int rowNum = move.getRow();
+		if (rowNum < 0 || rowNum >= numRows) {
+			return -1;
+		}
+		if (move instanceof RotateMove) {
+			if (rowNum == fixedRow) {
+				return -1;
+			}
+			int rotateAmount = ((RotateMove) move).getRotateAmount() % numCols;
+			boolean left = MoveType.leftRotateMoves.contains(move.getMoveType());
+			return rowNum * numCols + (left ? rotateAmount : (numCols - rotateAmount) % numCols);
+		}
+		boolean down = MoveType.downSlideMoves.contains(move.getMoveType());
+		if (down ? rowNum == numRows - 1 : rowNum == 0) {
+			return -1;
+		}
+		return getSlideMoveNum(rowNum, down);
+	}
+
+	/*
+	 * Null if the move can't be made with the blank in that cell
+	 */
+	public int[] getPermutation(int moveNum, int blankCell) {
+		return permutations[moveNum][blankCell];
+	}
+
+	/*
+	 * -1 if the move can't be made with the blank in that cell
+	 */
+	public int getBlankCellAfter(int moveNum, int blankCell) {
+		return blankCellsAfter[moveNum][blankCell];
+	}
+
+	/*
+	 * Permutation for making the first moves and then the second
+	 */
+	public static int[] compose(int[] first, int[] second) {
+		int[] composed = new int[first.length];
+		for (int cell = 0; cell < composed.length; cell++) {
+			composed[cell] = first[second[cell]];
+		}
+		return composed;
+	}
+
+	/*
+	 * Index of the first move that can't be made where it comes, starting with the
+	 * blank in blankCell, or -1 if they all can. Only the blank is followed, so
+	 * this is much cheaper than composing the moves.
+	 */
+	public int findIllegalMove(List<Move> moves, int blankCell) {
+		for (int i = 0; i < moves.size(); i++) {
+			int moveNum = getMoveNum(moves.get(i));
+			if (moveNum < 0 || blankCellsAfter[moveNum][blankCell] < 0) {
+				return i;
+			}
+			blankCell = blankCellsAfter[moveNum][blankCell];
+		}
+		return -1;
+	}
+
+	/*
+	 * Single permutation for the whole sequence, starting with the blank in
+	 * blankCell. Throws if any move can't be made where it comes.
+	 */
+	public int[] compose(List<Move> moves, int blankCell) {
+		int[] composed = createIdentity();
+		int[] nextComposed = new int[composed.length];
+		for (int i = 0; i < moves.size(); i++) {
+			int moveNum = getMoveNum(moves.get(i));
+			int[] permutation = moveNum < 0 ? null : permutations[moveNum][blankCell];
+			if (permutation == null) {
+				throw new IllegalArgumentException("Move " + (i + 1) + " can't be made: " + moves.get(i)
+						.getMoveDescription());
+			}
+			for (int cell = 0; cell < composed.length; cell++) {
+				nextComposed[cell] = composed[permutation[cell]];
+			}
+			int[] previousComposed = composed;
+			composed = nextComposed;
+			nextComposed = previousComposed;
+			blankCell = blankCellsAfter[moveNum][blankCell];
+		}
+		return composed;
+	}
+
+	public static char[] apply(int[] permutation, char[] cells) {
+		char[] newCells = new char[cells.length];
+		for (int cell = 0; cell < newCells.length; cell++) {
+			newCells[cell] = cells[permutation[cell]];
+		}
+		return newCells;
+	}
+
+	private int getSlideMoveNum(int rowNum, boolean down) {
+		return numRows * numCols + 2 * rowNum + (down ? 0 : 1);
+	}
+
+	/*
+	 * Rotating left by shift moves each square shift columns towards column 0
+	 */
+	private void compileRotation(int rowNum, int shift) {
+		int moveNum = rowNum * numCols + shift;
+		int[] permutation = createIdentity();
+		for (int colNum = 0; colNum < numCols; colNum++) {
+			permutation[rowNum * numCols + colNum] = rowNum * numCols + (colNum + shift) % numCols;
+		}
+		for (int blankCell = 0; blankCell < getNumCells(); blankCell++) {
+			permutations[moveNum][blankCell] = permutation;
+			blankCellsAfter[moveNum][blankCell] = blankCell / numCols != rowNum ? blankCell
+					: rowNum * numCols + Math.floorMod(blankCell % numCols - shift, numCols);
+		}
+	}
+
+	/*
+	 * The square in rowNum slides into the blank below it, or above it
+	 */
+	private void compileSlide(int rowNum, boolean down) {
+		int moveNum = getSlideMoveNum(rowNum, down);
+		int blankRow = down ? rowNum + 1 : rowNum - 1;
+		for (int colNum = 0; colNum < numCols; colNum++) {
+			int blankCell = blankRow * numCols + colNum;
+			int squareCell = rowNum * numCols + colNum;
+			int[] permutation = createIdentity();
+			permutation[blankCell] = squareCell;
+			permutation[squareCell] = blankCell;
+			permutations[moveNum][blankCell] = permutation;
+			blankCellsAfter[moveNum][blankCell] = squareCell;
+		}
+	}
+
+	private int[] createIdentity() {
+		int[] identity = new int[getNumCells()];
+		for (int cell = 0; cell < identity.length; cell++) {
+			identity[cell] = cell;
+		}
+		return identity;
+	}
+}
@@ -7,31 +7,81 @@ import java.util.Set;
 
 public enum MoveType {
 
-	TL("Top row, rotate left", "TR"),
-	TR("Top row, rotate right", "TL"),
-	BL("Bottom row, rotate left", "BR"),
-	BR("Bottom row, rotate right", "BL"),
-	TD("Top row, slide down", "MU"),
-	MD("Middle row, slide down", "BU"),
-	MU("Middle row, slide up", "TD"),
-	BU("Bottom row, slide up", "MD");
-	
-	public static final Set<MoveType> slideMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TD, MD, MU, BU)));
-	public static final Set<MoveType> rotateMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TL, TR, BL, BR)));
+	TL("Top row, rotate left", "TR", 0),
+	TR("Top row, rotate right", "TL", 0),
+	BL("Bottom row, rotate left", "BR", 2),
+	BR("Bottom row, rotate right", "BL", 2),
+	TD("Top row, slide down", "MU", 0),
+	MD("Middle row, slide down", "BU", 1),
+	MU("Middle row, slide up", "TD", 1),
+	BU("Bottom row, slide up", "MD", 2),
+	/*
+	 * Row-numbered moves for decoders that don't have exactly 3 rows
+	 */
+	RL("Row %d, rotate left", "RR", -1),
+	RR("Row %d, rotate right", "RL", -1),
+	SD("Row %d, slide down", "SU", -1),
+	SU("Row %d, slide up", "SD", -1);
+	
+	public static final Set<MoveType> slideMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TD, MD, MU, BU, SD, SU)));
+	public static final Set<MoveType> rotateMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TL, TR, BL, BR, RL, RR)));
+	public static final Set<MoveType> leftRotateMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TL, BL, RL)));
+	public static final Set<MoveType> downSlideMoves = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(TD, MD, SD)));
+	
+	private static final int NAMED_ROWS = 3;
 	
 	private final String moveString;
 	private final String oppositeMove;
+	private final int namedRow;
 	
-	MoveType(String moveString, String oppositeMove) {
+	MoveType(String moveString, String oppositeMove, int namedRow) {
 		this.moveString = moveString;
 		this.oppositeMove = oppositeMove;
+		this.namedRow = namedRow;
 	}
 
 	public String getMoveString() {
 		return this.moveString;
 	}
 	
+	/*
+	 * Zero-based row numbers are shown one-based. Named moves ignore the row.
+	 */
+	public String getMoveString(int row) {
+		return String.format(moveString, row + 1);
+	}
+	
 	public String getOppositeMove() {
 		return oppositeMove;
 	}
+	
+	/*
+	 * The row a named move acts on, or -1 for row-numbered moves
+	 */
+	public int getNamedRow() {
+		return namedRow;
+	}
+	
+	public static MoveType rotation(int row, int numRows, boolean left) {
+		if (numRows == NAMED_ROWS && row == TL.namedRow) {
+			return left ? TL : TR;
+		}
+		if (numRows == NAMED_ROWS && row == BL.namedRow) {
+			return left ? BL : BR;
+		}
+		return left ? RL : RR;
+	}
+	
+	/*
+	 * row is the row of the square that slides into the blank
+	 */
+	public static MoveType slide(int row, int numRows, boolean down) {
+		if (numRows == NAMED_ROWS && down && row != BU.namedRow) {
+			return row == TD.namedRow ? TD : MD;
+		}
+		if (numRows == NAMED_ROWS && !down && row != TD.namedRow) {
+			return row == MU.namedRow ? MU : BU;
+		}
+		return down ? SD : SU;
+	}
 }
@@ -4,8 +4,13 @@ public class RotateMove implements Move {
 
 	private final MoveType moveType;
 	private final int rotateAmount;
+	private final int row;
 	
 	public RotateMove(MoveType moveType, int rotateAmount) {
+		this(moveType, rotateAmount, moveType.getNamedRow());
+	}
+	
+	public RotateMove(MoveType moveType, int rotateAmount, int row) {
 		if (!MoveType.rotateMoves.contains(moveType)) {
 			throw new IllegalArgumentException("Move type must be rotation");
 		}
@@ -14,6 +19,10 @@ public class RotateMove implements Move {
 			throw new IllegalArgumentException("Rotation amount must be at least 1");
 		}
 		this.rotateAmount = rotateAmount;
+		if (row < 0 || (moveType.getNamedRow() >= 0 && row != moveType.getNamedRow())) {
+			throw new IllegalArgumentException("Invalid row for move type");
+		}
+		this.row = row;
 	}
 	
 	@Override
@@ -25,9 +34,14 @@ public class RotateMove implements Move {
 		return rotateAmount;
 	}
 	
+	@Override
+	public int getRow() {
+		return row;
+	}
+	
 	@Override
 	public String getMoveDescription() {
-		return String.format("%s by %d", moveType.getMoveString(), rotateAmount);
+		return String.format("%s by %d", moveType.getMoveString(row), rotateAmount);
 	}
 	
 	@Override
@@ -3,12 +3,21 @@ package moves;
 public class SlideMove implements Move {
 
 	private final MoveType moveType;
+	private final int row;
 	
 	public SlideMove(MoveType moveType) {
+		this(moveType, moveType.getNamedRow());
+	}
+	
+	public SlideMove(MoveType moveType, int row) {
 		if (!MoveType.slideMoves.contains(moveType)) {
 			throw new IllegalArgumentException("Move type must be slide");
 		}
 		this.moveType = moveType;
+		if (row < 0 || (moveType.getNamedRow() >= 0 && row != moveType.getNamedRow())) {
+			throw new IllegalArgumentException("Invalid row for move type");
+		}
+		this.row = row;
 	}
 	
 	@Override
@@ -16,9 +25,14 @@ public class SlideMove implements Move {
 		return moveType;
 	}
 	
+	@Override
+	public int getRow() {
+		return row;
+	}
+	
 	@Override
 	public String getMoveDescription() {
-		return moveType.getMoveString();
+		return moveType.getMoveString(row);
 	}
 	
 	@Override
@@ -30,12 +44,12 @@ public class SlideMove implements Move {
 			return false;
 		}
 		SlideMove otherSlideMove = (SlideMove) other;
-		return moveType == otherSlideMove.getMoveType();
+		return moveType == otherSlideMove.getMoveType() && row == otherSlideMove.getRow();
 	}
 	
 	@Override
 	public int hashCode() {
-		return moveType.hashCode();
+		return 31 * moveType.hashCode() + row;
 	}
 
 }
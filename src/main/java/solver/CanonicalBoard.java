@@ -0,0 +1,123 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.hash.Hashing;
+
+/*
+ * Normal form of a board under the symmetries that don't change which moves
+ * solve it: rotating the whole decoder and renaming the non-white colours.
+ * Moves name rows but never columns or colours, so a solution for one board
+ * solves every board with the same normal form. The solver breaks ties by
+ * column and colour, though, so solving two such boards can give different
+ * moves. Solve the normal form itself, via toStateArray, when they must match.
+ */
+public final class CanonicalBoard {
+
+	private static final char ROW_SEPARATOR = '/';
+
+	private CanonicalBoard() {
+	}
+
+	/*
+	 * Rows joined by '/', using whichever column shift gives the smallest string
+	 * once colours are renamed in order of first appearance. Assumes the board has
+	 * already been validated.
+	 */
+	public static String canonicalize(char[][] stateArray) {
+		String canonicalBoard = null;
+		for (int shift = 0; shift < stateArray[0].length; shift++) {
+			String candidate = relabel(stateArray, shift);
+			if (canonicalBoard == null || candidate.compareTo(canonicalBoard) < 0) {
+				canonicalBoard = candidate;
+			}
+		}
+		return canonicalBoard;
+	}
+
+	/*
+	 * Packed key that is equal for two boards exactly when their canonical forms
+	 * are. It avoids building strings, so it is the cheaper choice for large
+	 * tables, but the board it picks to represent a class can differ from
+	 * canonicalize.
+	 */
+	public static PackedState canonicalKey(char[][] stateArray) {
+		int numCols = stateArray[0].length;
+		int numSquares = stateArray.length * numCols;
+		byte[] bestCodes = null;
+		byte[] candidateCodes = new byte[numSquares];
+		byte[] colourCodes = new byte[128];
+		for (int shift = 0; shift < numCols; shift++) {
+			Arrays.fill(colourCodes, (byte) 0);
+			byte nextColourCode = PackedState.FIRST_COLOUR_CODE;
+			int comparison = bestCodes == null ? -1 : 0;
+			int squareNum = 0;
+			for (int rowNum = 0; rowNum < stateArray.length && comparison <= 0; rowNum++) {
+				char[] row = stateArray[rowNum];
+				for (int colNum = shift, i = 0; i < numCols; i++, squareNum++) {
+					char square = row[colNum];
+					colNum = colNum + 1 == numCols ? 0 : colNum + 1;
+					byte code;
+					if (square == '-') {
+						code = PackedState.BLANK_CODE;
+					} else if (square == 'w') {
+						code = PackedState.WHITE_CODE;
+					} else {
+						if (colourCodes[square] == 0) {
+							colourCodes[square] = nextColourCode++;
+						}
+						code = colourCodes[square];
+					}
+					if (comparison == 0) {
+						comparison = Byte.compare(code, bestCodes[squareNum]);
+						if (comparison > 0) {
+							break;
+						}
+					}
+					candidateCodes[squareNum] = code;
+				}
+			}
+			if (comparison < 0) {
+				byte[] previousBestCodes = bestCodes;
+				bestCodes = candidateCodes;
+				candidateCodes = previousBestCodes == null ? new byte[numSquares] : previousBestCodes;
+			}
+		}
+		return PackedState.fromCodes(bestCodes);
+	}
+
+	public static long hash(String canonicalBoard) {
+		return Hashing.murmur3_128().hashUnencodedChars(canonicalBoard).asLong();
+	}
+
+	public static char[][] toStateArray(String canonicalBoard) {
+		String[] rows = canonicalBoard.split(String.valueOf(ROW_SEPARATOR));
+		char[][] stateArray = new char[rows.length][];
+		for (int rowNum = 0; rowNum < rows.length; rowNum++) {
+			stateArray[rowNum] = rows[rowNum].toCharArray();
+		}
+		return stateArray;
+	}
+
+	private static String relabel(char[][] stateArray, int shift) {
+		int numCols = stateArray[0].length;
+		Map<Character, Character> colourLabels = new HashMap<>();
+		StringBuilder board = new StringBuilder(stateArray.length * (numCols + 1));
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			if (rowNum > 0) {
+				board.append(ROW_SEPARATOR);
+			}
+			for (int colNum = 0; colNum < numCols; colNum++) {
+				char square = stateArray[rowNum][(colNum + shift) % numCols];
+				if (square != 'w' && square != '-') {
+					square = colourLabels.computeIfAbsent(square,
+							colour -> DecoderDimensions.COLOUR_PALETTE.get(colourLabels.size()));
+				}
+				board.append(square);
+			}
+		}
+		return board.toString();
+	}
+}
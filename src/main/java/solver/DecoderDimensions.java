@@ -0,0 +1,142 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Geometry of a decoder. Every row except the reference row can be rotated, and
+ * a solved decoder has one colour per column, so a decoder with n columns uses
+ * n - 1 colours plus white.
+ */
+public final class DecoderDimensions {
+
+	public static final List<Character> COLOUR_PALETTE = Collections
+			.unmodifiableList(Arrays.asList('r', 'y', 'b', 'o', 'g', 'p', 'c', 'm', 'k'));
+	public static final int MIN_ROWS = 3;
+	public static final int MAX_ROWS = 6;
+	public static final int MIN_COLS = 3;
+	public static final int MAX_COLS = COLOUR_PALETTE.size() + 1;
+
+	public static final String ROWS_OUT_OF_RANGE = "Number of rows must be between %d and %d";
+	public static final String COLS_OUT_OF_RANGE = "Number of columns must be between %d and %d";
+
+	public static final DecoderDimensions STANDARD = new DecoderDimensions(Solver.NUM_ROWS, Solver.NUM_COLS);
+
+	private final int numRows;
+	private final int numCols;
+	private final List<Character> columnColours;
+	private final Set<Character> charSet;
+	private final List<Character> charList;
+
+	public DecoderDimensions(int numRows, int numCols) {
+		List<String> errorMsgs = new ArrayList<>();
+		if (numRows < MIN_ROWS || numRows > MAX_ROWS) {
+			errorMsgs.add(String.format(ROWS_OUT_OF_RANGE, MIN_ROWS, MAX_ROWS));
+		}
+		if (numCols < MIN_COLS || numCols > MAX_COLS) {
+			errorMsgs.add(String.format(COLS_OUT_OF_RANGE, MIN_COLS, MAX_COLS));
+		}
+		if (!errorMsgs.isEmpty()) {
+			throw new InvalidConfigurationException(errorMsgs);
+		}
+		this.numRows = numRows;
+		this.numCols = numCols;
+		List<Character> columnColours = new ArrayList<>(COLOUR_PALETTE.subList(0, numCols - 1));
+		columnColours.add('w');
+		this.columnColours = Collections.unmodifiableList(columnColours);
+		Set<Character> charSet = new HashSet<>(columnColours);
+		charSet.add('-');
+		this.charSet = Collections.unmodifiableSet(charSet);
+		List<Character> charList = new ArrayList<>();
+		for (char colour : columnColours) {
+			for (int rowNum = 0; rowNum < getRequiredCount(colour); rowNum++) {
+				charList.add(colour);
+			}
+		}
+		charList.add('-');
+		this.charList = Collections.unmodifiableList(charList);
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumCols() {
+		return numCols;
+	}
+
+	public int getNumCells() {
+		return numRows * numCols;
+	}
+
+	/*
+	 * The row that never rotates. Rotations of the other rows are measured against
+	 * it.
+	 */
+	public int getReferenceRow() {
+		return numRows / 2;
+	}
+
+	public boolean isRotatableRow(int rowNum) {
+		return rowNum != getReferenceRow();
+	}
+
+	public Set<Character> getCharSet() {
+		return charSet;
+	}
+
+	/*
+	 * Every square of a full decoder, including the blank
+	 */
+	public List<Character> getCharList() {
+		return charList;
+	}
+
+	public int getRequiredCount(char character) {
+		if (character == '-') {
+			return 1;
+		}
+		return character == 'w' ? numRows - 1 : numRows;
+	}
+
+	public boolean isStandard() {
+		return equals(STANDARD);
+	}
+
+	/*
+	 * A solved decoder with the white column last and the blank at its top
+	 */
+	public char[][] createSolvedStateArray() {
+		char[][] stateArray = new char[numRows][numCols];
+		for (int rowNum = 0; rowNum < numRows; rowNum++) {
+			for (int colNum = 0; colNum < numCols; colNum++) {
+				stateArray[rowNum][colNum] = columnColours.get(colNum);
+			}
+		}
+		stateArray[0][numCols - 1] = '-';
+		return stateArray;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof DecoderDimensions)) {
+			return false;
+		}
+		DecoderDimensions otherDimensions = (DecoderDimensions) obj;
+		return numRows == otherDimensions.numRows && numCols == otherDimensions.numCols;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * numRows + numCols;
+	}
+
+	@Override
+	public String toString() {
+		return numRows + "x" + numCols;
+	}
+}
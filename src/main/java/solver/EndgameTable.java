@@ -0,0 +1,242 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+import moves.SlideMove;
+
+/*
+ * Exact distance to solved, and the first move of a shortest way there, for
+ * every board within a few moves of solved. It is built by a breadth-first
+ * search outwards from the solved boards, one whole level at a time, for as many
+ * levels as fit in the memory budget. Boards are stored by canonical form, since
+ * renaming colours or turning the whole decoder changes neither the distance
+ * nor the moves. A rotation of a row by any amount counts as one move, the same
+ * as in a solver path.
+ */
+public final class EndgameTable {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+	/*
+	 * Shared tables are dropped, least recently used first, once together they
+	 * would take more than this. The cache has a single segment, since Guava
+	 * splits the limit between segments and one large entry would be dropped as
+	 * soon as it was loaded.
+	 */
+	public static final long MAX_SHARED_MEMORY = 3 * DEFAULT_MEMORY_BUDGET;
+
+	/*
+	 * Rough heap cost of one entry: the packed board, its map node and the boxed
+	 * value
+	 */
+	private static final int BYTES_PER_ENTRY = 128;
+	private static final int MOVE_BITS = 8;
+	private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+
+	private static final LoadingCache<DecoderDimensions, EndgameTable> sharedTables = CacheBuilder.newBuilder()
+			.concurrencyLevel(1)
+			.maximumWeight(MAX_SHARED_MEMORY)
+			.<DecoderDimensions, EndgameTable>weigher((dimensions, table) -> (int) table.getMemoryUsage())
+			.build(CacheLoader.from(dimensions -> new EndgameTable(dimensions, DEFAULT_MEMORY_BUDGET)));
+
+	private final DecoderDimensions dimensions;
+	private final List<Move> moves;
+	private final int[] inverseMoveNums;
+	/*
+	 * Distance in the high bits, index of the next move in the low bits
+	 */
+	private final Map<PackedState, Short> entries;
+	private final int depth;
+
+	private EndgameTable(DecoderDimensions dimensions, long memoryBudget) {
+		this.dimensions = dimensions;
+		moves = createMoves(dimensions);
+		inverseMoveNums = new int[moves.size()];
+		for (int moveNum = 0; moveNum < moves.size(); moveNum++) {
+			inverseMoveNums[moveNum] = moves.indexOf(getInverse(moves.get(moveNum)));
+		}
+		entries = new HashMap<>();
+		long maxEntries = memoryBudget / BYTES_PER_ENTRY;
+		List<char[][]> frontier = new ArrayList<>();
+		for (int blankRow = 0; blankRow < dimensions.getNumRows(); blankRow++) {
+			char[][] solvedStateArray = dimensions.createSolvedStateArray();
+			solvedStateArray[0][dimensions.getNumCols() - 1] = 'w';
+			solvedStateArray[blankRow][dimensions.getNumCols() - 1] = '-';
+			if (entries.putIfAbsent(CanonicalBoard.canonicalKey(solvedStateArray), (short) 0) == null) {
+				frontier.add(solvedStateArray);
+			}
+		}
+		int distance = 0;
+		double growth = moves.size();
+		while (!frontier.isEmpty() && distance < (Short.MAX_VALUE >> MOVE_BITS)) {
+			// Skip a level that is unlikely to fit rather than build most of it
+			if (entries.size() + frontier.size() * growth > maxEntries) {
+				break;
+			}
+			List<char[][]> nextFrontier = expand(frontier, distance + 1, maxEntries);
+			if (nextFrontier == null) {
+				break;
+			}
+			growth = nextFrontier.size() / (double) frontier.size();
+			frontier = nextFrontier;
+			distance++;
+		}
+		depth = distance;
+	}
+
+	/*
+	 * The shared table for the dimensions, built with the default memory budget on
+	 * first use
+	 */
+	public static EndgameTable forDimensions(DecoderDimensions dimensions) {
+		return sharedTables.getUnchecked(dimensions);
+	}
+
+	public static EndgameTable build(DecoderDimensions dimensions, long memoryBudget) {
+		return new EndgameTable(dimensions, memoryBudget);
+	}
+
+	/*
+	 * Every board not in the table is more than this many moves from solved
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getMemoryUsage() {
+		return (long) entries.size() * BYTES_PER_ENTRY;
+	}
+
+	/*
+	 * Number of moves from the board to solved, or -1 if it isn't in the table
+	 */
+	public int getDistance(char[][] stateArray) {
+		Short entry = entries.get(CanonicalBoard.canonicalKey(stateArray));
+		return entry == null ? -1 : entry >> MOVE_BITS;
+	}
+
+	/*
+	 * A shortest list of moves that solves the board, or null if it isn't in the
+	 * table
+	 */
+	public List<Move> getSolution(char[][] stateArray) {
+		char[][] currentStateArray = copyStateArray(stateArray);
+		Short entry = entries.get(CanonicalBoard.canonicalKey(currentStateArray));
+		if (entry == null) {
+			return null;
+		}
+		List<Move> solution = new ArrayList<>();
+		while (entry >> MOVE_BITS > 0) {
+			Move move = moves.get(entry & MOVE_MASK);
+			Solver.applyMove(currentStateArray, move);
+			solution.add(move);
+			entry = entries.get(CanonicalBoard.canonicalKey(currentStateArray));
+		}
+		return solution;
+	}
+
+	/*
+	 * Adds every board one move past the frontier. Returns null, leaving the table
+	 * as it was before the level, if the level doesn't fit.
+	 */
+	private List<char[][]> expand(List<char[][]> frontier, int distance, long maxEntries) {
+		List<PackedState> addedKeys = new ArrayList<>();
+		List<char[][]> nextFrontier = new ArrayList<>();
+		for (char[][] stateArray : frontier) {
+			for (int moveNum = 0; moveNum < moves.size(); moveNum++) {
+				Move move = moves.get(moveNum);
+				if (!isLegal(stateArray, move)) {
+					continue;
+				}
+				char[][] newStateArray = copyStateArray(stateArray);
+				Solver.applyMove(newStateArray, move);
+				PackedState key = CanonicalBoard.canonicalKey(newStateArray);
+				if (entries.containsKey(key)) {
+					continue;
+				}
+				if (entries.size() >= maxEntries) {
+					entries.keySet().removeAll(addedKeys);
+					return null;
+				}
+				short entry = (short) (distance << MOVE_BITS | inverseMoveNums[moveNum]);
+				entries.put(key, entry);
+				addedKeys.add(key);
+				nextFrontier.add(newStateArray);
+			}
+		}
+		return nextFrontier;
+	}
+
+	private boolean isLegal(char[][] stateArray, Move move) {
+		if (move instanceof RotateMove) {
+			return true;
+		}
+		int squareRow = move.getRow();
+		int blankRow = MoveType.downSlideMoves.contains(move.getMoveType()) ? squareRow + 1 : squareRow - 1;
+		for (char square : stateArray[blankRow]) {
+			if (square == '-') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Move getInverse(Move move) {
+		int numRows = dimensions.getNumRows();
+		int row = move.getRow();
+		if (move instanceof RotateMove) {
+			int rotateAmount = dimensions.getNumCols() - ((RotateMove) move).getRotateAmount();
+			return new RotateMove(MoveType.rotation(row, numRows, true), rotateAmount, row);
+		}
+		boolean down = MoveType.downSlideMoves.contains(move.getMoveType());
+		int blankRow = down ? row + 1 : row - 1;
+		return new SlideMove(MoveType.slide(blankRow, numRows, !down), blankRow);
+	}
+
+	/*
+	 * Left rotations of each rotatable row by every amount, then slides down and up
+	 * from every row that has one
+	 */
+	private static List<Move> createMoves(DecoderDimensions dimensions) {
+		List<Move> moves = new ArrayList<>();
+		int numRows = dimensions.getNumRows();
+		for (int rowNum = 0; rowNum < numRows; rowNum++) {
+			if (!dimensions.isRotatableRow(rowNum)) {
+				continue;
+			}
+			for (int rotateAmount = 1; rotateAmount < dimensions.getNumCols(); rotateAmount++) {
+				moves.add(new RotateMove(MoveType.rotation(rowNum, numRows, true), rotateAmount, rowNum));
+			}
+		}
+		for (int rowNum = 0; rowNum < numRows - 1; rowNum++) {
+			moves.add(new SlideMove(MoveType.slide(rowNum, numRows, true), rowNum));
+		}
+		for (int rowNum = 1; rowNum < numRows; rowNum++) {
+			moves.add(new SlideMove(MoveType.slide(rowNum, numRows, false), rowNum));
+		}
+		return Collections.unmodifiableList(moves);
+	}
+
+	private static char[][] copyStateArray(char[][] stateArray) {
+		char[][] stateArrayCopy = new char[stateArray.length][];
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			stateArrayCopy[rowNum] = Arrays.copyOf(stateArray[rowNum], stateArray[rowNum].length);
+		}
+		return stateArrayCopy;
+	}
+}
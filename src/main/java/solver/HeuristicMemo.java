@@ -0,0 +1,156 @@
+package solver;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/*
+ * Heuristic values shared by every solver in the process, so states explored
+ * for one request don't have their heuristic worked out again for the next. The
+ * table is a fixed number of small buckets set aside up front, so it never
+ * grows past its memory budget. A full bucket makes room with the clock
+ * algorithm: every hit marks its entry as referenced, and the bucket's hand
+ * clears marks as it passes them, replacing the first entry that isn't marked.
+ * Reads take no locks. Writes lock one of a fixed set of stripes.
+ */
+public final class HeuristicMemo {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	/*
+	 * Shared memos are dropped, least recently used first, once together they
+	 * would take more than this. As with EndgameTable, one cache segment
+	 * keeps a whole memo within the limit.
+	 */
+	public static final long MAX_SHARED_MEMORY = 2 * DEFAULT_MEMORY_BUDGET;
+
+	/*
+	 * Rough heap cost of one entry of the largest boards: the slot, the entry and
+	 * its packed board
+	 */
+	private static final int BYTES_PER_ENTRY = 112;
+	private static final int BUCKET_SIZE = 8;
+	private static final int NUM_LOCKS = 64;
+
+	private static final LoadingCache<DecoderDimensions, HeuristicMemo> sharedMemos = CacheBuilder.newBuilder()
+			.concurrencyLevel(1)
+			.maximumWeight(MAX_SHARED_MEMORY)
+			.<DecoderDimensions, HeuristicMemo>weigher((dimensions, memo) -> (int) memo.getMemoryUsage())
+			.build(CacheLoader.from(dimensions -> new HeuristicMemo(DEFAULT_MEMORY_BUDGET)));
+
+	private final AtomicReferenceArray<Entry> entries;
+	private final boolean[] referenced;
+	private final byte[] clockHands;
+	private final Object[] locks;
+	private final int bucketMask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public HeuristicMemo(long memoryBudget) {
+		int numBuckets = Integer.highestOneBit((int) Math.max(1,
+				Math.min(memoryBudget / BYTES_PER_ENTRY / BUCKET_SIZE, Integer.MAX_VALUE / BUCKET_SIZE)));
+		entries = new AtomicReferenceArray<>(numBuckets * BUCKET_SIZE);
+		referenced = new boolean[numBuckets * BUCKET_SIZE];
+		clockHands = new byte[numBuckets];
+		locks = new Object[NUM_LOCKS];
+		for (int lockNum = 0; lockNum < NUM_LOCKS; lockNum++) {
+			locks[lockNum] = new Object();
+		}
+		bucketMask = numBuckets - 1;
+	}
+
+	public static HeuristicMemo forDimensions(DecoderDimensions dimensions) {
+		return sharedMemos.getUnchecked(dimensions);
+	}
+
+	/*
+	 * Stored heuristic of the board, or -1 if it isn't stored
+	 */
+	public float get(PackedState packedState) {
+		int firstSlot = getBucket(packedState) * BUCKET_SIZE;
+		for (int slot = firstSlot; slot < firstSlot + BUCKET_SIZE; slot++) {
+			Entry entry = entries.get(slot);
+			if (entry == null) {
+				break;
+			}
+			if (entry.packedState.equals(packedState)) {
+				referenced[slot] = true;
+				hits.increment();
+				return entry.heuristic;
+			}
+		}
+		misses.increment();
+		return -1;
+	}
+
+	public void put(PackedState packedState, float heuristic) {
+		int bucket = getBucket(packedState);
+		int firstSlot = bucket * BUCKET_SIZE;
+		synchronized (locks[bucket & (NUM_LOCKS - 1)]) {
+			for (int slot = firstSlot; slot < firstSlot + BUCKET_SIZE; slot++) {
+				Entry entry = entries.get(slot);
+				if (entry == null) {
+					entries.set(slot, new Entry(packedState, heuristic));
+					return;
+				}
+				if (entry.packedState.equals(packedState)) {
+					return;
+				}
+			}
+			int hand = clockHands[bucket];
+			while (referenced[firstSlot + hand]) {
+				referenced[firstSlot + hand] = false;
+				hand = (hand + 1) % BUCKET_SIZE;
+			}
+			entries.set(firstSlot + hand, new Entry(packedState, heuristic));
+			clockHands[bucket] = (byte) ((hand + 1) % BUCKET_SIZE);
+			evictions.increment();
+		}
+	}
+
+	/*
+	 * Most entries the memo can hold at once
+	 */
+	public int getCapacity() {
+		return entries.length();
+	}
+
+	/*
+	 * Memory the memo may take once it is full
+	 */
+	public long getMemoryUsage() {
+		return (long) getCapacity() * BYTES_PER_ENTRY;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	private int getBucket(PackedState packedState) {
+		int hash = packedState.hashCode() * 0x9E3779B9;
+		return (hash ^ hash >>> 16) & bucketMask;
+	}
+
+	private static final class Entry {
+
+		private final PackedState packedState;
+		private final float heuristic;
+
+		Entry(PackedState packedState, float heuristic) {
+			this.packedState = packedState;
+			this.heuristic = heuristic;
+		}
+
+	}
+}
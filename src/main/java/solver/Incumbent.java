@@ -0,0 +1,93 @@
+package solver;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import moves.Move;
+
+/*
+ * Shortest complete solution found so far by the searches of one board. The
+ * searches of a portfolio share one, so a solution found by any of them prunes
+ * the others, and they stop once it is cancelled. Each solution remembers which
+ * strategy's search found it, since a search pruned by the others can end up
+ * returning a solution it didn't find. The searches also stop at its time
+ * limit, if it has one.
+ */
+final class Incumbent {
+
+	private final AtomicReference<Solution> solution = new AtomicReference<>();
+	private volatile boolean cancelled;
+	private final long timeLimitMillis;
+	private final long deadline;
+
+	Incumbent() {
+		this(Solver.NO_TIME_LIMIT);
+	}
+
+	Incumbent(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+		deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+	}
+
+	/*
+	 * Null until a solution is found
+	 */
+	Solution getSolution() {
+		return solution.get();
+	}
+
+	/*
+	 * Null until a solution is found
+	 */
+	List<Move> getSolutionPath() {
+		Solution currentSolution = solution.get();
+		return currentSolution == null ? null : currentSolution.getPath();
+	}
+
+	/*
+	 * Kept only if it is shorter than the current solution
+	 */
+	void offer(List<Move> newSolutionPath, SearchStrategy strategy) {
+		solution.accumulateAndGet(new Solution(newSolutionPath, strategy),
+				(currentSolution, newSolution) -> currentSolution != null
+						&& currentSolution.getPath().size() <= newSolution.getPath().size() ? currentSolution
+								: newSolution);
+	}
+
+	void cancel() {
+		cancelled = true;
+	}
+
+	void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+		if (timeLimitMillis != Solver.NO_TIME_LIMIT && System.nanoTime() - deadline > 0) {
+			throw new SolveTimeoutException(timeLimitMillis);
+		}
+	}
+
+	static final class Solution {
+
+		private final List<Move> path;
+		private final SearchStrategy strategy;
+
+		Solution(List<Move> path, SearchStrategy strategy) {
+			this.path = path;
+			this.strategy = strategy;
+		}
+
+		List<Move> getPath() {
+			return path;
+		}
+
+		/*
+		 * Strategy of the search that found the solution
+		 */
+		SearchStrategy getStrategy() {
+			return strategy;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package solver;
+
+import java.util.Arrays;
+
+/*
+ * Compact, immutable encoding of a state array using 4 bits per square. A
+ * standard 3x6 decoder fits in two longs, which makes it a much cheaper map
+ * or set key than a State holding a char[][] and its path.
+ */
+public final class PackedState {
+
+	static final byte BLANK_CODE = 0;
+	static final byte WHITE_CODE = 1;
+	static final byte FIRST_COLOUR_CODE = 2;
+
+	private static final int BITS_PER_SQUARE = 4;
+	private static final int SQUARES_PER_WORD = Long.SIZE / BITS_PER_SQUARE;
+	private static final long SQUARE_MASK = (1L << BITS_PER_SQUARE) - 1;
+	private static final char[] SYMBOLS = createSymbols();
+	private static final byte[] SYMBOL_CODES = createSymbolCodes();
+
+	private final long[] words;
+	private final int hash;
+
+	private PackedState(long[] words) {
+		this.words = words;
+		this.hash = Arrays.hashCode(words);
+	}
+
+	public static PackedState pack(char[][] stateArray) {
+		int numSquares = stateArray.length * stateArray[0].length;
+		long[] words = new long[(numSquares + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD];
+		int squareNum = 0;
+		for (char[] row : stateArray) {
+			for (char square : row) {
+				long code = square < SYMBOL_CODES.length ? SYMBOL_CODES[square] : -1;
+				if (code < 0) {
+					throw new IllegalArgumentException(String.format(Solver.INVALID_CHARACTER, square));
+				}
+				words[squareNum / SQUARES_PER_WORD] |= code << (squareNum % SQUARES_PER_WORD * BITS_PER_SQUARE);
+				squareNum++;
+			}
+		}
+		return new PackedState(words);
+	}
+
+	/*
+	 * Packs squares already converted to codes, in row order
+	 */
+	static PackedState fromCodes(byte[] squareCodes) {
+		long[] words = new long[(squareCodes.length + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD];
+		for (int squareNum = 0; squareNum < squareCodes.length; squareNum++) {
+			words[squareNum / SQUARES_PER_WORD] |= (long) squareCodes[squareNum] << (squareNum % SQUARES_PER_WORD
+					* BITS_PER_SQUARE);
+		}
+		return new PackedState(words);
+	}
+
+	public char[][] unpack(int numRows, int numCols) {
+		char[][] stateArray = new char[numRows][numCols];
+		for (int squareNum = 0; squareNum < numRows * numCols; squareNum++) {
+			int code = (int) (words[squareNum / SQUARES_PER_WORD] >>> (squareNum % SQUARES_PER_WORD * BITS_PER_SQUARE)
+					& SQUARE_MASK);
+			stateArray[squareNum / numCols][squareNum % numCols] = SYMBOLS[code];
+		}
+		return stateArray;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PackedState)) {
+			return false;
+		}
+		PackedState otherState = (PackedState) obj;
+		return hash == otherState.hash && Arrays.equals(words, otherState.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	private static char[] createSymbols() {
+		char[] symbols = new char[DecoderDimensions.COLOUR_PALETTE.size() + 2];
+		symbols[BLANK_CODE] = '-';
+		symbols[WHITE_CODE] = 'w';
+		for (int i = 0; i < DecoderDimensions.COLOUR_PALETTE.size(); i++) {
+			symbols[FIRST_COLOUR_CODE + i] = DecoderDimensions.COLOUR_PALETTE.get(i);
+		}
+		return symbols;
+	}
+
+	private static byte[] createSymbolCodes() {
+		byte[] symbolCodes = new byte[128];
+		Arrays.fill(symbolCodes, (byte) -1);
+		for (int code = 0; code < SYMBOLS.length; code++) {
+			symbolCodes[SYMBOLS[code]] = (byte) code;
+		}
+		return symbolCodes;
+	}
+}
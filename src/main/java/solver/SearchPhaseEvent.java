@@ -0,0 +1,35 @@
+package solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JFR event covering one phase of a search, e.g. A* or its switch to IDA*, so
+ * that a recording of a slow solve shows where the time went. Committing costs
+ * almost nothing unless a recording has the event enabled. jdk.jfr is only in
+ * every JDK from 11 on, so the build targets 11. Only Solver creates these, and
+ * only on runtimes that include the jdk.jfr module.
+ */
+@Name("solver.SearchPhase")
+@Label("Search Phase")
+@Category("Rubik's Decoder Solver")
+@Description("One phase of a solver search")
+@StackTrace(false)
+class SearchPhaseEvent extends Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Nodes Expanded")
+	long nodesExpanded;
+
+	@Label("Peak Queue Size")
+	int peakQueueSize;
+
+	@Label("Peak Stored States")
+	int peakStoredStates;
+}
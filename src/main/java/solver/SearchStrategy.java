@@ -0,0 +1,37 @@
+package solver;
+
+public enum SearchStrategy {
+
+	/*
+	 * Best-first search over every generated state. Much faster, but memory grows
+	 * with the number of states reached, so it switches to IDA_STAR once
+	 * Solver.MAX_STORED_STATES states are stored.
+	 */
+	A_STAR,
+	/*
+	 * Iterative deepening on the same cost function. Only the current path is
+	 * kept in memory, so it stays usable on decoders whose state space doesn't fit
+	 * in RAM, at the cost of re-expanding states between iterations.
+	 */
+	IDA_STAR,
+	/*
+	 * A_STAR with the heuristic scaled by Solver.HEURISTIC_WEIGHT. It heads for
+	 * solved more greedily, so it finishes sooner on boards where A_STAR stalls,
+	 * but its solutions can be longer.
+	 */
+	WEIGHTED_A_STAR,
+	/*
+	 * Races Solver.PORTFOLIO_STRATEGIES on separate threads and returns the
+	 * solution of the first to finish. Which one wins can depend on timing, so the
+	 * same board can get different solutions.
+	 */
+	PORTFOLIO,
+	/*
+	 * Fast mode for when response time matters more than solution length. A
+	 * greedy search with the heuristic scaled by
+	 * Solver.TWO_PHASE_HEURISTIC_WEIGHT stops at the first board in the endgame
+	 * table, and the table's moves finish the solve. Solutions are about half as
+	 * long again as A_STAR's, but typical solves take a few milliseconds.
+	 */
+	TWO_PHASE;
+}
@@ -0,0 +1,100 @@
+package solver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Rolling log of solves that took too long, one JSON object per line, kept so
+ * that the boards behind slow requests can be rerun later. Each record has the
+ * same "rows" field as a SolverLoadTest corpus line, so the log can be replayed
+ * as it is. Once the file reaches its size limit it is renamed to path.1,
+ * older files move up one number, and the oldest is deleted.
+ */
+public class SlowSolveLog {
+
+	public static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+	public static final int DEFAULT_MAX_FILES = 5;
+
+	private final Path path;
+	private final long maxFileBytes;
+	private final int maxFiles;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	public SlowSolveLog(Path path) {
+		this(path, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+	}
+
+	public SlowSolveLog(Path path, long maxFileBytes, int maxFiles) {
+		this.path = path;
+		this.maxFileBytes = maxFileBytes;
+		this.maxFiles = maxFiles;
+	}
+
+	public synchronized void record(char[][] inputArray, SearchStrategy searchStrategy, SolveStats solveStats,
+			int numMoves) throws IOException {
+		List<String> rows = new ArrayList<>();
+		for (char[] row : inputArray) {
+			rows.add(new String(row));
+		}
+		Map<String, Object> record = new LinkedHashMap<>();
+		record.put("time", Instant.now().toString());
+		record.put("rows", rows);
+		record.put("strategy", searchStrategy);
+		record.put("elapsedMs", solveStats.getElapsedMillis());
+		record.put("nodesExpanded", solveStats.getNodesExpanded());
+		record.put("peakQueueSize", solveStats.getPeakQueueSize());
+		record.put("peakStoredStates", solveStats.getPeakStoredStates());
+		record.put("peakMemoryEstimate", solveStats.getPeakMemoryEstimate());
+		record.put("numMoves", numMoves);
+		byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+		if (Files.exists(path) && Files.size(path) + line.length > maxFileBytes) {
+			roll();
+		}
+		Files.write(path, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/*
+	 * Every record still kept, oldest first
+	 */
+	public synchronized List<JsonNode> readAll() throws IOException {
+		List<JsonNode> records = new ArrayList<>();
+		for (int fileNum = maxFiles - 1; fileNum >= 0; fileNum--) {
+			Path filePath = getFilePath(fileNum);
+			if (!Files.exists(filePath)) {
+				continue;
+			}
+			for (String line : Files.readAllLines(filePath, StandardCharsets.UTF_8)) {
+				if (!line.trim().isEmpty()) {
+					records.add(objectMapper.readTree(line));
+				}
+			}
+		}
+		return records;
+	}
+
+	private void roll() throws IOException {
+		Files.deleteIfExists(getFilePath(maxFiles - 1));
+		for (int fileNum = maxFiles - 2; fileNum >= 0; fileNum--) {
+			Path filePath = getFilePath(fileNum);
+			if (Files.exists(filePath)) {
+				Files.move(filePath, getFilePath(fileNum + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	private Path getFilePath(int fileNum) {
+		return fileNum == 0 ? path : path.resolveSibling(path.getFileName() + "." + fileNum);
+	}
+}
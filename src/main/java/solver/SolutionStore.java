@@ -0,0 +1,548 @@
+package solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+import moves.SlideMove;
+
+/*
+ * Append-only log of solved boards keyed by canonical board, shared by every
+ * process on the host that opens the same file. Records are read through a
+ * memory mapping of the indexed part of the log, and an in-memory index from
+ * board hash to the latest record is rebuilt by scanning it on open.
+ *
+ * Appends take an exclusive file lock and are forced to disk before the index
+ * is updated. Each record carries its length and a CRC32, so a record torn by a
+ * crash is detected and cut off before the next append. Records solved by an
+ * older Solver.VERSION are kept for offline use but never served.
+ *
+ * Lookups only take a read lock on the index. Appends, compaction and scans are
+ * serialized by a separate lock, so a lookup never waits for another thread's
+ * fsync, and a lookup that misses only checks for other processes' records if
+ * the file lock is free. The log can't grow past 2 GB, the most one mapping can
+ * cover. A full log is reported as an IOException like any other store failure.
+ *
+ * File layout: an 8 byte header, then records of
+ * magic | payload length | board hash | solver version | payload | CRC32
+ * where the payload is the UTF-8 canonical board and the encoded moves.
+ */
+public class SolutionStore implements Closeable {
+
+	private static final long FILE_MAGIC = 0x5244_5354_4F52_4531L; // "RDSTORE1"
+	private static final int RECORD_MAGIC = 0x5244_5331;
+	private static final int HEADER_SIZE = Long.BYTES;
+	private static final int CHECKED_FIELDS_OFFSET = Integer.BYTES;
+	private static final int FIELDS_SIZE = Integer.BYTES * 3 + Long.BYTES;
+	private static final int RECORD_OVERHEAD = FIELDS_SIZE + Integer.BYTES;
+	private static final int MAX_PAYLOAD_LENGTH = 1 << 16;
+	private static final int SCAN_CHUNK_SIZE = 1 << 20;
+	private static final long MAX_LOG_LENGTH = Integer.MAX_VALUE;
+	private static final String PAYLOAD_SEPARATOR = " ";
+	private static final String MOVE_SEPARATOR = ",";
+	private static final String FIELD_SEPARATOR = ":";
+
+	private final Path path;
+	private final long maxLogLength;
+	/*
+	 * Held while using the file lock, which the JVM only lets one thread hold
+	 */
+	private final ReentrantLock fileLockHolder = new ReentrantLock();
+	/*
+	 * Guards the index and the current mapping. The channel, file key, indexed length and
+	 * record count are only changed while holding fileLockHolder as well, so
+	 * either lock is enough to read them.
+	 */
+	private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+	private final Map<Long, Long> recordOffsets = new HashMap<>();
+	private FileChannel channel;
+	private Object fileKey;
+	private MappedByteBuffer mappedLog;
+	private long indexedLength;
+	private int recordCount;
+
+	public SolutionStore(Path path) throws IOException {
+		this(path, MAX_LOG_LENGTH);
+	}
+
+	SolutionStore(Path path, long maxLogLength) throws IOException {
+		this.path = path;
+		this.maxLogLength = Math.min(maxLogLength, MAX_LOG_LENGTH);
+		fileLockHolder.lock();
+		try {
+			open();
+		} finally {
+			fileLockHolder.unlock();
+		}
+	}
+
+	/*
+	 * The stored solution for the board, or null if it hasn't been solved by this
+	 * solver version
+	 */
+	public List<Move> get(String canonicalBoard) throws IOException {
+		List<Move> moves = lookUp(canonicalBoard);
+		if (moves == null && refresh()) {
+			moves = lookUp(canonicalBoard);
+		}
+		return moves;
+	}
+
+	public void put(String canonicalBoard, List<Move> moves) throws IOException {
+		byte[] payload = (canonicalBoard + PAYLOAD_SEPARATOR + encodeMoves(moves)).getBytes(StandardCharsets.UTF_8);
+		if (payload.length > MAX_PAYLOAD_LENGTH) {
+			throw new IllegalArgumentException("Solution too long to store");
+		}
+		long hash = CanonicalBoard.hash(canonicalBoard);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+		record.putInt(RECORD_MAGIC).putInt(payload.length).putLong(hash).putInt(Solver.VERSION).put(payload);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), CHECKED_FIELDS_OFFSET, FIELDS_SIZE - CHECKED_FIELDS_OFFSET + payload.length);
+		record.putInt((int) crc.getValue());
+		record.flip();
+		fileLockHolder.lock();
+		try {
+			FileLock lock = lockCurrentFile();
+			try {
+				scan(true);
+				if (lookUp(canonicalBoard) != null) {
+					return; // Another process stored it first
+				}
+				long offset = channel.size();
+				if (offset + record.remaining() > maxLogLength) {
+					throw new IOException(path + " is full");
+				}
+				while (record.hasRemaining()) {
+					channel.write(record, offset + record.position());
+				}
+				channel.force(false);
+				indexLock.writeLock().lock();
+				try {
+					recordOffsets.put(hash, offset);
+					recordCount++;
+					indexedLength = offset + record.limit();
+				} finally {
+					indexLock.writeLock().unlock();
+				}
+			} finally {
+				lock.release();
+			}
+		} finally {
+			fileLockHolder.unlock();
+		}
+	}
+
+	/*
+	 * Every valid record in the log, including those from older solver versions,
+	 * for replaying as a benchmark or regression corpus
+	 */
+	public List<StoredSolution> readAll() throws IOException {
+		refresh();
+		MappedByteBuffer log = mapIndexedRecords();
+		List<StoredSolution> solutions = new ArrayList<>();
+		long position = HEADER_SIZE;
+		while (position < log.capacity()) {
+			solutions.add(readRecord(log, position));
+			position += RECORD_OVERHEAD + log.getInt((int) position + Integer.BYTES);
+		}
+		return solutions;
+	}
+
+	public int size() {
+		indexLock.readLock().lock();
+		try {
+			return recordOffsets.size();
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * True once superseded records make up more than half of the log
+	 */
+	public boolean needsCompaction() {
+		indexLock.readLock().lock();
+		try {
+			return recordCount > 2 * recordOffsets.size();
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Rewrites the log with only the latest record for each board and atomically
+	 * replaces it. Other processes notice the new file on their next refresh.
+	 */
+	public void compact() throws IOException {
+		Path compactPath = path.resolveSibling(path.getFileName() + ".compact");
+		fileLockHolder.lock();
+		try {
+			FileLock lock = lockCurrentFile();
+			try {
+				scan(true);
+				MappedByteBuffer log = mapIndexedRecords();
+				List<Long> offsets = new ArrayList<>(recordOffsets.values());
+				Collections.sort(offsets);
+				try (FileChannel compactChannel = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+					compactChannel.write(createHeader());
+					for (long offset : offsets) {
+						int recordLength = RECORD_OVERHEAD + log.getInt((int) offset + Integer.BYTES);
+						ByteBuffer record = log.duplicate();
+						record.position((int) offset).limit((int) offset + recordLength);
+						while (record.hasRemaining()) {
+							compactChannel.write(record);
+						}
+					}
+					compactChannel.force(true);
+				}
+				Files.move(compactPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				lock.release();
+			}
+			open();
+		} finally {
+			fileLockHolder.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		fileLockHolder.lock();
+		indexLock.writeLock().lock();
+		try {
+			channel.close();
+		} finally {
+			indexLock.writeLock().unlock();
+			fileLockHolder.unlock();
+		}
+	}
+
+	public static class StoredSolution {
+
+		private final String canonicalBoard;
+		private final int solverVersion;
+		private final List<Move> moves;
+
+		StoredSolution(String canonicalBoard, int solverVersion, List<Move> moves) {
+			this.canonicalBoard = canonicalBoard;
+			this.solverVersion = solverVersion;
+			this.moves = moves;
+		}
+
+		public String getCanonicalBoard() {
+			return canonicalBoard;
+		}
+
+		public int getSolverVersion() {
+			return solverVersion;
+		}
+
+		public List<Move> getMoves() {
+			return moves;
+		}
+	}
+
+	/*
+	 * Index maintenance. open, lockCurrentFile, reopenIfReplaced and scan must
+	 * hold fileLockHolder.
+	 */
+
+	/*
+	 * Opens the file at the store's path and indexes it from the start, replacing
+	 * any file opened before
+	 */
+	private void open() throws IOException {
+		FileChannel newChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		Object newFileKey = readFileKey();
+		FileLock lock = newChannel.lock();
+		try {
+			if (newChannel.size() == 0) {
+				newChannel.write(createHeader(), 0);
+				newChannel.force(true);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			newChannel.read(header, 0);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getLong() != FILE_MAGIC) {
+				newChannel.close();
+				throw new IOException(path + " is not a solution store");
+			}
+			if (newChannel.size() > maxLogLength) {
+				newChannel.close();
+				throw new IOException(path + " is too large to map");
+			}
+			FileChannel oldChannel;
+			indexLock.writeLock().lock();
+			try {
+				oldChannel = channel;
+				channel = newChannel;
+				fileKey = newFileKey;
+				recordOffsets.clear();
+				recordCount = 0;
+				indexedLength = HEADER_SIZE;
+				mappedLog = null;
+			} finally {
+				indexLock.writeLock().unlock();
+			}
+			if (oldChannel != null) {
+				oldChannel.close();
+			}
+			scan(true);
+		} finally {
+			if (lock.isValid()) { // Not if the channel was closed
+				lock.release();
+			}
+		}
+	}
+
+	/*
+	 * Exclusive lock on the file currently at the store's path. Another process
+	 * can compact and replace the file while this one waits for the lock, so the
+	 * file is checked again once the lock is held.
+	 */
+	private FileLock lockCurrentFile() throws IOException {
+		while (true) {
+			reopenIfReplaced();
+			FileLock lock = channel.lock();
+			if (Objects.equals(fileKey, readFileKey())) {
+				return lock;
+			}
+			lock.release();
+		}
+	}
+
+	/*
+	 * Picks up records appended by other processes, unless another thread or
+	 * process is using the file. Returns true if anything changed.
+	 */
+	private boolean refresh() throws IOException {
+		if (!fileLockHolder.tryLock()) {
+			return false;
+		}
+		try {
+			if (reopenIfReplaced()) {
+				return true;
+			}
+			if (channel.size() == indexedLength) {
+				return false;
+			}
+			try (FileLock lock = channel.tryLock(0, Long.MAX_VALUE, true)) {
+				return lock != null && scan(false);
+			} catch (OverlappingFileLockException e) {
+				return false; // Another store in this process has the file locked
+			}
+		} finally {
+			fileLockHolder.unlock();
+		}
+	}
+
+	private boolean reopenIfReplaced() throws IOException {
+		if (Objects.equals(fileKey, readFileKey())) {
+			return false;
+		}
+		open();
+		return true;
+	}
+
+	/*
+	 * Indexes records from the end of the last scan. Must hold a file lock. With
+	 * an exclusive lock, a torn or corrupt tail is truncated. Returns true if any
+	 * records were found.
+	 */
+	private boolean scan(boolean repair) throws IOException {
+		long fileLength = channel.size();
+		if (fileLength > maxLogLength) {
+			throw new IOException(path + " is too large to map");
+		}
+		Map<Long, Long> newRecordOffsets = new HashMap<>();
+		ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK_SIZE);
+		chunk.limit(0);
+		long chunkStart = indexedLength;
+		long position = indexedLength;
+		int numRecords = 0;
+		while (position + RECORD_OVERHEAD <= fileLength) {
+			if (position + RECORD_OVERHEAD > chunkStart + chunk.limit()) {
+				chunkStart = position;
+				readChunk(chunk, chunkStart, fileLength);
+			}
+			int pos = (int) (position - chunkStart);
+			int payloadLength = chunk.getInt(pos + Integer.BYTES);
+			if (chunk.getInt(pos) != RECORD_MAGIC || payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH
+					|| position + RECORD_OVERHEAD + payloadLength > fileLength) {
+				break;
+			}
+			if (pos + RECORD_OVERHEAD + payloadLength > chunk.limit()) {
+				chunkStart = position;
+				readChunk(chunk, chunkStart, fileLength);
+				pos = 0;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(chunk.array(), pos + CHECKED_FIELDS_OFFSET, FIELDS_SIZE - CHECKED_FIELDS_OFFSET + payloadLength);
+			if ((int) crc.getValue() != chunk.getInt(pos + FIELDS_SIZE + payloadLength)) {
+				break;
+			}
+			newRecordOffsets.put(chunk.getLong(pos + Integer.BYTES * 2), position);
+			numRecords++;
+			position += RECORD_OVERHEAD + payloadLength;
+		}
+		indexLock.writeLock().lock();
+		try {
+			recordOffsets.putAll(newRecordOffsets);
+			recordCount += numRecords;
+			indexedLength = position;
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+		if (repair && position < fileLength) {
+			channel.truncate(position);
+			channel.force(true);
+		}
+		return numRecords > 0;
+	}
+
+	private void readChunk(ByteBuffer chunk, long chunkStart, long fileLength) throws IOException {
+		chunk.clear();
+		chunk.limit((int) Math.min(chunk.capacity(), fileLength - chunkStart));
+		while (chunk.hasRemaining()) {
+			if (channel.read(chunk, chunkStart + chunk.position()) < 0) {
+				throw new IOException(path + " shrank while it was locked");
+			}
+		}
+	}
+
+	/*
+	 * Mapping of every record indexed so far, mapping again only if the index has
+	 * grown since the last mapping. The records in a mapping never change, so it
+	 * can be read without holding a lock.
+	 */
+	private MappedByteBuffer mapIndexedRecords() throws IOException {
+		indexLock.writeLock().lock();
+		try {
+			if (mappedLog == null || mappedLog.capacity() < indexedLength) {
+				mappedLog = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexedLength);
+			}
+			return mappedLog;
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+	}
+
+	private List<Move> lookUp(String canonicalBoard) throws IOException {
+		long hash = CanonicalBoard.hash(canonicalBoard);
+		Long offset;
+		MappedByteBuffer log;
+		indexLock.readLock().lock();
+		try {
+			offset = recordOffsets.get(hash);
+			log = mappedLog;
+		} finally {
+			indexLock.readLock().unlock();
+		}
+		if (offset == null) {
+			return null;
+		}
+		if (log == null || offset >= log.capacity()) {
+			indexLock.writeLock().lock();
+			try {
+				offset = recordOffsets.get(hash); // The file may have been reopened in between
+				if (offset == null) {
+					return null;
+				}
+				log = mapIndexedRecords();
+			} finally {
+				indexLock.writeLock().unlock();
+			}
+		}
+		StoredSolution solution = readRecord(log, offset);
+		if (solution.getSolverVersion() != Solver.VERSION || !solution.getCanonicalBoard().equals(canonicalBoard)) {
+			return null;
+		}
+		return solution.getMoves();
+	}
+
+	private static StoredSolution readRecord(MappedByteBuffer log, long offset) {
+		int pos = (int) offset;
+		int payloadLength = log.getInt(pos + Integer.BYTES);
+		int solverVersion = log.getInt(pos + Integer.BYTES * 2 + Long.BYTES);
+		byte[] payload = new byte[payloadLength];
+		ByteBuffer payloadBuffer = log.duplicate();
+		payloadBuffer.position(pos + FIELDS_SIZE);
+		payloadBuffer.get(payload);
+		String[] fields = new String(payload, StandardCharsets.UTF_8).split(PAYLOAD_SEPARATOR, 2);
+		return new StoredSolution(fields[0], solverVersion, decodeMoves(fields[1]));
+	}
+
+	private Object readFileKey() throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private static ByteBuffer createHeader() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putLong(FILE_MAGIC);
+		header.flip();
+		return header;
+	}
+
+	/*
+	 * Move encoding, e.g. "TL:0:2,MU:1"
+	 */
+
+	private static String encodeMoves(List<Move> moves) {
+		List<String> encodedMoves = new ArrayList<>();
+		for (Move move : moves) {
+			String encodedMove = move.getMoveType().name() + FIELD_SEPARATOR + move.getRow();
+			if (move instanceof RotateMove) {
+				encodedMove += FIELD_SEPARATOR + ((RotateMove) move).getRotateAmount();
+			}
+			encodedMoves.add(encodedMove);
+		}
+		return String.join(MOVE_SEPARATOR, encodedMoves);
+	}
+
+	private static List<Move> decodeMoves(String encodedMoves) {
+		List<Move> moves = new ArrayList<>();
+		if (encodedMoves.isEmpty()) {
+			return moves;
+		}
+		for (String encodedMove : encodedMoves.split(MOVE_SEPARATOR)) {
+			String[] fields = encodedMove.split(FIELD_SEPARATOR);
+			MoveType moveType = MoveType.valueOf(fields[0]);
+			int row = Integer.parseInt(fields[1]);
+			if (MoveType.rotateMoves.contains(moveType)) {
+				moves.add(new RotateMove(moveType, Integer.parseInt(fields[2]), row));
+			} else {
+				moves.add(new SlideMove(moveType, row));
+			}
+		}
+		return moves;
+	}
+}
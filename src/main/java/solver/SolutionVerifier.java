@@ -0,0 +1,68 @@
+package solver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import moves.Move;
+import moves.MoveEngine;
+
+/*
+ * Checks that a list of moves solves a board, without searching. The moves are
+ * composed into one permutation with a MoveEngine, which is applied to the
+ * board once, so long candidate solutions are checked without copying the
+ * board after every move.
+ */
+public final class SolutionVerifier {
+
+	private static final Map<DecoderDimensions, MoveEngine> moveEngines = new ConcurrentHashMap<>();
+
+	private SolutionVerifier() {
+	}
+
+	public static MoveEngine getMoveEngine(DecoderDimensions dimensions) {
+		return moveEngines.computeIfAbsent(dimensions, newDimensions -> new MoveEngine(newDimensions.getNumRows(),
+				newDimensions.getNumCols(), newDimensions.getReferenceRow()));
+	}
+
+	/*
+	 * Throws InvalidConfigurationException if the board isn't valid. Moves that
+	 * can't be made give an unsolved result naming the first of them.
+	 */
+	public static VerificationResult verify(char[][] stateArray, DecoderDimensions dimensions, List<Move> moves) {
+		List<String> errorMsgs = Solver.validateInput(stateArray, dimensions);
+		if (!errorMsgs.isEmpty()) {
+			throw new InvalidConfigurationException(errorMsgs);
+		}
+		MoveEngine moveEngine = getMoveEngine(dimensions);
+		char[] cells = new char[dimensions.getNumCells()];
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			System.arraycopy(stateArray[rowNum], 0, cells, rowNum * stateArray[rowNum].length,
+					stateArray[rowNum].length);
+		}
+		int blankCell = new String(cells).indexOf('-');
+		int illegalMove = moveEngine.findIllegalMove(moves, blankCell);
+		if (illegalMove >= 0) {
+			return new VerificationResult(false, illegalMove, String.format(VerificationResult.ILLEGAL_MOVE,
+					illegalMove + 1, moves.get(illegalMove).getMoveDescription()));
+		}
+		cells = MoveEngine.apply(moveEngine.compose(moves, blankCell), cells);
+		return new VerificationResult(isSolution(cells, dimensions.getNumCols()), moves.size(), null);
+	}
+
+	/*
+	 * Same test as Solver.isSolution, on a board flattened row by row
+	 */
+	private static boolean isSolution(char[] cells, int numCols) {
+		for (int colNum = 0; colNum < numCols; colNum++) {
+			char colour = cells[colNum] == '-' ? 'w' : cells[colNum];
+			for (int cell = colNum + numCols; cell < cells.length; cell += numCols) {
+				char square = cells[cell] == '-' ? 'w' : cells[cell];
+				if (square != colour) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
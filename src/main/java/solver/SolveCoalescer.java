@@ -0,0 +1,76 @@
+package solver;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import moves.Move;
+
+/*
+ * Runs at most one search per canonical board at a time. Requests for a board
+ * that is already being solved, or for any board symmetric to it, wait for
+ * that search and share its result instead of starting their own. The first
+ * request runs the search on its own thread. The key can also include anything
+ * else that changes the result, such as the search strategy. The search must
+ * depend only on the key, e.g. by solving the canonical board rather than the
+ * first request's, or a request's result would depend on who came first.
+ */
+public class SolveCoalescer {
+
+	private final ConcurrentMap<String, CompletableFuture<List<Move>>> inFlightSolves = new ConcurrentHashMap<>();
+	private final AtomicLong numRequests = new AtomicLong();
+	private final AtomicLong numCoalesced = new AtomicLong();
+
+	public List<Move> solve(String key, Supplier<List<Move>> search) {
+		numRequests.incrementAndGet();
+		CompletableFuture<List<Move>> newSolve = new CompletableFuture<>();
+		CompletableFuture<List<Move>> inFlightSolve = inFlightSolves.putIfAbsent(key, newSolve);
+		if (inFlightSolve != null) {
+			numCoalesced.incrementAndGet();
+			return join(inFlightSolve);
+		}
+		try {
+			newSolve.complete(search.get());
+		} catch (RuntimeException e) {
+			newSolve.completeExceptionally(e);
+		} finally {
+			inFlightSolves.remove(key, newSolve);
+		}
+		return join(newSolve);
+	}
+
+	public long getNumRequests() {
+		return numRequests.get();
+	}
+
+	public long getNumCoalesced() {
+		return numCoalesced.get();
+	}
+
+	public long getNumSearches() {
+		return numRequests.get() - numCoalesced.get();
+	}
+
+	/*
+	 * Fraction of requests that were served by another request's search
+	 */
+	public double getCoalescingRatio() {
+		long requests = numRequests.get();
+		return requests == 0 ? 0 : numCoalesced.get() / (double) requests;
+	}
+
+	private static List<Move> join(CompletableFuture<List<Move>> solve) {
+		try {
+			return solve.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package solver;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ * Admits searches by how hard they are expected to be. Easy and hard boards
+ * run in separate lanes, each with its own limit on concurrent searches, so
+ * easy boards never wait behind hard ones. Within a lane, waiting searches are
+ * admitted easiest first, but every agingMillis spent waiting counts as one
+ * unit less difficulty, so a hard search can't be passed over forever. Searches
+ * run on the caller's thread.
+ */
+public class SolveScheduler {
+
+	private final float hardDifficulty;
+	private final double agingNanos;
+	private final long startTime = System.nanoTime();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Lane easyLane;
+	private final Lane hardLane;
+
+	/*
+	 * Boards with an estimated difficulty of at least hardDifficulty use the hard
+	 * lane
+	 */
+	public SolveScheduler(float hardDifficulty, int easyConcurrency, int hardConcurrency, long agingMillis) {
+		if (easyConcurrency < 1 || hardConcurrency < 1) {
+			throw new IllegalArgumentException("Each lane must allow at least 1 search");
+		}
+		if (agingMillis < 1) {
+			throw new IllegalArgumentException("Aging time must be at least 1 ms");
+		}
+		this.hardDifficulty = hardDifficulty;
+		agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+		easyLane = new Lane(easyConcurrency);
+		hardLane = new Lane(hardConcurrency);
+	}
+
+	/*
+	 * Waits for the lane, then runs the search. Throws CancellationException if the
+	 * thread is interrupted while waiting.
+	 */
+	public <T> T run(float difficulty, Supplier<T> search) {
+		Lane lane = difficulty >= hardDifficulty ? hardLane : easyLane;
+		acquire(lane, difficulty);
+		try {
+			return search.get();
+		} finally {
+			release(lane);
+		}
+	}
+
+	public int getNumRunning(boolean hard) {
+		lock.lock();
+		try {
+			return (hard ? hardLane : easyLane).numRunning;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getNumWaiting(boolean hard) {
+		lock.lock();
+		try {
+			return (hard ? hardLane : easyLane).waiting.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Searches admitted to the lane so far
+	 */
+	public long getNumAdmitted(boolean hard) {
+		return (hard ? hardLane : easyLane).numAdmitted.get();
+	}
+
+	/*
+	 * Total time searches spent waiting for the lane
+	 */
+	public long getWaitMillis(boolean hard) {
+		return TimeUnit.NANOSECONDS.toMillis((hard ? hardLane : easyLane).waitNanos.get());
+	}
+
+	private void acquire(Lane lane, float difficulty) {
+		long arrivalTime = System.nanoTime();
+		lock.lock();
+		try {
+			if (lane.numRunning < lane.concurrency && lane.waiting.isEmpty()) {
+				lane.numRunning++;
+			} else {
+				/*
+				 * Every waiter ages at the same rate, so ordering by difficulty less
+				 * time waited is the same as ordering by difficulty plus arrival time
+				 */
+				Waiter waiter = new Waiter(difficulty + (arrivalTime - startTime) / agingNanos, lock.newCondition());
+				lane.waiting.add(waiter);
+				try {
+					while (!waiter.admitted) {
+						waiter.condition.await();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					if (!waiter.admitted) {
+						lane.waiting.remove(waiter);
+						throw new CancellationException();
+					}
+					// Admitted as it was interrupted, so run it anyway
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		lane.numAdmitted.incrementAndGet();
+		lane.waitNanos.addAndGet(System.nanoTime() - arrivalTime);
+	}
+
+	/*
+	 * Hands the place straight to the next waiter, if there is one
+	 */
+	private void release(Lane lane) {
+		lock.lock();
+		try {
+			Waiter next = lane.waiting.poll();
+			if (next == null) {
+				lane.numRunning--;
+			} else {
+				next.admitted = true;
+				next.condition.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Fields other than the counters are guarded by the scheduler's lock
+	 */
+	private static final class Lane {
+
+		private final int concurrency;
+		private final PriorityQueue<Waiter> waiting = new PriorityQueue<>();
+		private final AtomicLong numAdmitted = new AtomicLong();
+		private final AtomicLong waitNanos = new AtomicLong();
+		private int numRunning;
+
+		Lane(int concurrency) {
+			this.concurrency = concurrency;
+		}
+	}
+
+	private static final class Waiter implements Comparable<Waiter> {
+
+		private final double priority;
+		private final Condition condition;
+		private boolean admitted;
+
+		Waiter(double priority, Condition condition) {
+			this.priority = priority;
+			this.condition = condition;
+		}
+
+		@Override
+		public int compareTo(Waiter other) {
+			return Double.compare(priority, other.priority);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+
+/*
+ * The last solution one user was given, so that a board on the way along it, or
+ * one move off it, is answered from it without searching. Any other board, such
+ * as the last one with a misentered square fixed, is searched like a board
+ * without a session, reusing only the heuristic values every solver shares.
+ *
+ * Only solutions of up to MAX_FOLLOWED_MOVES are followed, so a session never
+ * holds more than MAX_MEMORY_ESTIMATE bytes and a cap on the number of
+ * sessions bounds their total memory. Heuristic values live in the shared,
+ * bounded HeuristicMemo rather than in the session's solver.
+ */
+public class SolveSession {
+
+	public static final int MAX_FOLLOWED_MOVES = 100;
+	/*
+	 * Rough heap cost of a session following the longest solution it can: the
+	 * session and its solver, plus a move, a packed board of the largest size and
+	 * a map entry for every step
+	 */
+	public static final long MAX_MEMORY_ESTIMATE = 1024 + 160L * (MAX_FOLLOWED_MOVES + 1);
+
+	private final DecoderDimensions dimensions;
+	private final SearchStrategy searchStrategy;
+	/*
+	 * Only for legal moves. Searches use their own solver, outside the session's
+	 * lock.
+	 */
+	private final Solver solver;
+	private List<Move> solutionPath = Collections.emptyList();
+	/*
+	 * Number of moves of the last solution already made, for every board on the
+	 * way
+	 */
+	private final Map<PackedState, Integer> solutionSteps = new HashMap<>();
+
+	public SolveSession(DecoderDimensions dimensions) {
+		this(dimensions, SearchStrategy.A_STAR);
+	}
+
+	public SolveSession(DecoderDimensions dimensions, SearchStrategy searchStrategy) {
+		this.dimensions = dimensions;
+		this.searchStrategy = searchStrategy;
+		solver = new Solver(dimensions, searchStrategy);
+	}
+
+	public DecoderDimensions getDimensions() {
+		return dimensions;
+	}
+
+	/*
+	 * The rest of the last solution if the board is on the way along it or one
+	 * move off it, otherwise null
+	 */
+	public synchronized List<Move> getRemainingMoves(char[][] stateArray) {
+		Integer step = solutionSteps.get(CanonicalBoard.canonicalKey(stateArray));
+		if (step != null) {
+			return new ArrayList<>(solutionPath.subList(step, solutionPath.size()));
+		}
+		List<Move> remainingMoves = null;
+		for (Move move : solver.getLegalMoves(stateArray)) {
+			char[][] newStateArray = copyStateArray(stateArray);
+			Solver.applyMove(newStateArray, move);
+			Integer newStep = solutionSteps.get(CanonicalBoard.canonicalKey(newStateArray));
+			if (newStep != null
+					&& (remainingMoves == null || 1 + solutionPath.size() - newStep < remainingMoves.size())) {
+				remainingMoves = new ArrayList<>();
+				remainingMoves.add(move);
+				remainingMoves.addAll(solutionPath.subList(newStep, solutionPath.size()));
+			}
+		}
+		if (remainingMoves != null) {
+			combineFirstRotations(remainingMoves);
+		}
+		return remainingMoves;
+	}
+
+	/*
+	 * Searches, then follows the solution. Other requests in the session aren't
+	 * held up by the search.
+	 */
+	public List<Move> solve(char[][] inputArray) {
+		List<Move> solution = new Solver(dimensions, searchStrategy).solveRubiksDecoder(inputArray);
+		setSolution(inputArray, solution);
+		return solution;
+	}
+
+	/*
+	 * Follows a solution that was found elsewhere, e.g. by another request. A
+	 * solution longer than MAX_FOLLOWED_MOVES isn't followed.
+	 */
+	public synchronized void setSolution(char[][] inputArray, List<Move> solution) {
+		solutionSteps.clear();
+		if (solution.size() > MAX_FOLLOWED_MOVES) {
+			solutionPath = Collections.emptyList();
+			return;
+		}
+		solutionPath = new ArrayList<>(solution);
+		char[][] stateArray = copyStateArray(inputArray);
+		for (int step = 0; step < solutionPath.size(); step++) {
+			solutionSteps.put(CanonicalBoard.canonicalKey(stateArray), step);
+			Solver.applyMove(stateArray, solutionPath.get(step));
+		}
+		solutionSteps.put(CanonicalBoard.canonicalKey(stateArray), solutionPath.size());
+	}
+
+	/*
+	 * A move back onto the solution can be a rotation of the same row as the
+	 * solution's next move, in which case the two become one rotation or cancel
+	 * out
+	 */
+	private void combineFirstRotations(List<Move> moves) {
+		if (moves.size() < 2 || !(moves.get(0) instanceof RotateMove) || !(moves.get(1) instanceof RotateMove)
+				|| moves.get(0).getRow() != moves.get(1).getRow()) {
+			return;
+		}
+		int numCols = dimensions.getNumCols();
+		int leftRotation = Math.floorMod(getLeftRotation((RotateMove) moves.get(0))
+				+ getLeftRotation((RotateMove) moves.get(1)), numCols);
+		int row = moves.get(0).getRow();
+		moves.remove(0);
+		moves.remove(0);
+		if (leftRotation != 0) {
+			boolean left = leftRotation <= numCols / 2;
+			moves.add(0, new RotateMove(MoveType.rotation(row, dimensions.getNumRows(), left),
+					left ? leftRotation : numCols - leftRotation, row));
+		}
+	}
+
+	private static int getLeftRotation(RotateMove move) {
+		boolean left = MoveType.leftRotateMoves.contains(move.getMoveType());
+		return left ? move.getRotateAmount() : -move.getRotateAmount();
+	}
+
+	private static char[][] copyStateArray(char[][] stateArray) {
+		char[][] stateArrayCopy = new char[stateArray.length][];
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			stateArrayCopy[rowNum] = Arrays.copyOf(stateArray[rowNum], stateArray[rowNum].length);
+		}
+		return stateArrayCopy;
+	}
+}
@@ -0,0 +1,51 @@
+package solver;
+
+/*
+ * What one solve cost
+ */
+public final class SolveStats {
+
+	/*
+	 * Rough heap cost of one stored A* state: the state, its path and its queue and
+	 * map entries
+	 */
+	public static final int BYTES_PER_STORED_STATE = 400;
+
+	private final long elapsedNanos;
+	private final long nodesExpanded;
+	private final int peakQueueSize;
+	private final int peakStoredStates;
+
+	public SolveStats(long elapsedNanos, long nodesExpanded, int peakQueueSize, int peakStoredStates) {
+		this.elapsedNanos = elapsedNanos;
+		this.nodesExpanded = nodesExpanded;
+		this.peakQueueSize = peakQueueSize;
+		this.peakStoredStates = peakStoredStates;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1_000_000;
+	}
+
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/*
+	 * Most states waiting in the A* queue at once, stale entries included
+	 */
+	public int getPeakQueueSize() {
+		return peakQueueSize;
+	}
+
+	/*
+	 * Most states A* had stored at once, or the deepest IDA* path
+	 */
+	public int getPeakStoredStates() {
+		return peakStoredStates;
+	}
+
+	public long getPeakMemoryEstimate() {
+		return (long) peakStoredStates * BYTES_PER_STORED_STATE;
+	}
+}
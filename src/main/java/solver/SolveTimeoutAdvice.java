@@ -0,0 +1,20 @@
+package solver;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ControllerAdvice
+class SolveTimeoutAdvice {
+	@ResponseBody
+	@ExceptionHandler(SolveTimeoutException.class)
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	List<String> solveTimeoutHandler(SolveTimeoutException ex) {
+		return Collections.singletonList(ex.getMessage());
+	}
+}
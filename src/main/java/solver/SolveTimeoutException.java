@@ -0,0 +1,12 @@
+package solver;
+
+/*
+ * Thrown when a search runs past its time limit without a solution
+ */
+@SuppressWarnings("serial")
+public class SolveTimeoutException extends RuntimeException {
+	
+	SolveTimeoutException(long timeLimitMillis) {
+		super(String.format("No solution found within %d ms", timeLimitMillis));
+	}
+}
@@ -4,16 +4,26 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.primitives.Chars;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import moves.Move;
 import moves.MoveType;
@@ -22,12 +32,16 @@ import moves.SlideMove;
 
 public class Solver {
 
+	/*
+	 * Bump whenever a change can alter the moves returned for a board. Stored
+	 * solutions from other versions are ignored.
+	 */
+	public static final int VERSION = 3;
+
 	public static final int NUM_ROWS = 3;
 	public static final int NUM_COLS = 6;
-	public static final Set<Character> CHAR_SET = Collections
-			.unmodifiableSet(new HashSet<>(Arrays.asList('r', 'y', 'b', 'o', 'g', 'w', '-')));
-	public static final List<Character> CHAR_LIST = Collections.unmodifiableList(
-			Arrays.asList('r', 'r', 'r', 'y', 'y', 'y', 'b', 'b', 'b', 'o', 'o', 'o', 'g', 'g', 'g', 'w', 'w', '-'));
+	public static final Set<Character> CHAR_SET = DecoderDimensions.STANDARD.getCharSet();
+	public static final List<Character> CHAR_LIST = DecoderDimensions.STANDARD.getCharList();
 
 	public static final String WRONG_ROW_LENGTH = "Row %d must have exactly %d squares";
 	public static final String WRONG_NUM_ROWS = "There must be exactly %d rows";
@@ -35,93 +49,622 @@ public class Solver {
 	public static final String ONE_BLANK_SQUARE_ONLY = "Need exactly 1 '-' squares, but there are ";
 	public static final String TWO_WHITE_SQUARES_REQUIRED = "Need exactly 2 'w' squares, but there are ";
 	public static final String THREE_SQUARES_PER_CHARACTER = "Need exactly 3 '%c' squares, but there are %d";
+	/*
+	 * Same messages as the two above, for decoders of any size
+	 */
+	public static final String WHITE_SQUARES_REQUIRED = "Need exactly %d 'w' squares, but there are %d";
+	public static final String SQUARES_PER_CHARACTER = "Need exactly %d '%c' squares, but there are %d";
 
-	private final Map<State, Float> stateHeuristics;
+	/*
+	 * Roughly 200 MB of A* states. Past this the search continues with IDA*.
+	 */
+	public static final int MAX_STORED_STATES = 500_000;
+	public static final long NO_TIME_LIMIT = 0;
+
+	/*
+	 * Weight on the heuristic for WEIGHTED_A_STAR
+	 */
+	public static final float HEURISTIC_WEIGHT = 1.5f;
+	/*
+	 * Weight on the heuristic for the first phase of TWO_PHASE
+	 */
+	public static final float TWO_PHASE_HEURISTIC_WEIGHT = 2;
+	/*
+	 * Nodes each round of TWO_PHASE's first phase may expand before it commits
+	 * to the most promising board so far
+	 */
+	public static final int MAX_TWO_PHASE_NODES = 2000;
+	public static final List<SearchStrategy> PORTFOLIO_STRATEGIES = Collections.unmodifiableList(
+			Arrays.asList(SearchStrategy.A_STAR, SearchStrategy.WEIGHTED_A_STAR, SearchStrategy.IDA_STAR));
+
+	/*
+	 * One thread per core, but enough for one portfolio solve to race all its
+	 * strategies. Searches of concurrent solves queue for a thread.
+	 */
+	private static final ExecutorService portfolioExecutor = Executors.newFixedThreadPool(
+			Math.max(PORTFOLIO_STRATEGIES.size(), Runtime.getRuntime().availableProcessors()),
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("portfolio-search-%d").build());
+	private static final Map<SearchStrategy, LongAdder> portfolioWins = createPortfolioWins();
+	private static final boolean jfrAvailable = isJfrAvailable();
+
+	private final DecoderDimensions dimensions;
+	private final SearchStrategy searchStrategy;
+	private final EndgameTable endgameTable;
+	private final HeuristicMemo heuristicMemo;
+	private long nodesExpanded;
+	private long lookaheadsComputed;
+	private long lookaheadsSkipped;
+	private long statesRequeued;
+	private int peakQueueSize;
+	private int peakStoredStates;
+	private SolveStats lastSolveStats;
+	private float nextCostBound;
+	private boolean boundedSolutionFound;
+	private State nextRoundState;
+	private Incumbent incumbent;
+	private SearchStrategy winningStrategy;
 
 	public Solver() {
-		stateHeuristics = new HashMap<>();
+		this(DecoderDimensions.STANDARD);
+	}
+
+	public Solver(DecoderDimensions dimensions) {
+		this(dimensions, SearchStrategy.A_STAR);
+	}
+
+	public Solver(DecoderDimensions dimensions, SearchStrategy searchStrategy) {
+		this(dimensions, searchStrategy, EndgameTable.forDimensions(dimensions));
+	}
+
+	public Solver(DecoderDimensions dimensions, SearchStrategy searchStrategy, EndgameTable endgameTable) {
+		this(dimensions, searchStrategy, endgameTable, HeuristicMemo.forDimensions(dimensions));
+	}
+
+	public Solver(DecoderDimensions dimensions, SearchStrategy searchStrategy, EndgameTable endgameTable,
+			HeuristicMemo heuristicMemo) {
+		this.dimensions = dimensions;
+		this.searchStrategy = searchStrategy;
+		this.endgameTable = endgameTable;
+		this.heuristicMemo = heuristicMemo;
 	}
 
 	public List<Move> solveRubiksDecoder(char[][] inputArray) {
-		List<String> errorMsgs = validateInput(inputArray);
-		if (!errorMsgs.isEmpty()) {
-			throw new InvalidConfigurationException(errorMsgs);
-		}
+		return solveRubiksDecoder(inputArray, NO_TIME_LIMIT);
+	}
+
+	/*
+	 * Throws a SolveTimeoutException if the search runs for longer than the time
+	 * limit
+	 */
+	public List<Move> solveRubiksDecoder(char[][] inputArray, long timeLimitMillis) {
+		validate(inputArray);
+		long startTime = System.nanoTime();
+		nodesExpanded = 0;
+		peakQueueSize = 0;
+		peakStoredStates = 0;
 		State startState = new State(inputArray, Collections.emptyList(), 0);
-		List<Move> solutionPath = getSolutionPath(startState);
+		List<Move> solutionPath = searchStrategy == SearchStrategy.PORTFOLIO
+				? runPhase(searchStrategy.toString(), () -> getSolutionPathPortfolio(startState, timeLimitMillis))
+				: search(startState, new Incumbent(timeLimitMillis));
 		shortenRotations(solutionPath);
+		lastSolveStats = new SolveStats(System.nanoTime() - startTime, nodesExpanded, peakQueueSize,
+				peakStoredStates);
+		return solutionPath;
+	}
+
+	/*
+	 * Null until a solve succeeds
+	 */
+	public SolveStats getLastSolveStats() {
+		return lastSolveStats;
+	}
+
+	/*
+	 * Searches with this solver's own strategy, sharing the incumbent with any
+	 * other searches of the same board
+	 */
+	private List<Move> search(State startState, Incumbent incumbent) {
+		this.incumbent = incumbent;
+		return runPhase(searchStrategy.toString(), () -> searchStrategy == SearchStrategy.IDA_STAR
+				? getSolutionPathBounded(startState) : getSolutionPathInRounds(startState));
+	}
+
+	/*
+	 * Only TWO_PHASE searches more than one round. Each round starts afresh, so
+	 * none of the last round's states are kept.
+	 */
+	private List<Move> getSolutionPathInRounds(State startState) {
+		List<Move> solutionPath = getSolutionPath(startState);
+		while (solutionPath == null) {
+			solutionPath = getSolutionPath(nextRoundState);
+		}
 		return solutionPath;
 	}
 
+	/*
+	 * Marks the search with a SearchPhaseEvent when JFR is available
+	 */
+	private List<Move> runPhase(String phase, Supplier<List<Move>> search) {
+		if (!jfrAvailable) {
+			return search.get();
+		}
+		long startNodes = nodesExpanded;
+		SearchPhaseEvent event = new SearchPhaseEvent();
+		event.begin();
+		try {
+			return search.get();
+		} finally {
+			event.phase = phase;
+			event.nodesExpanded = nodesExpanded - startNodes;
+			event.peakQueueSize = peakQueueSize;
+			event.peakStoredStates = peakStoredStates;
+			event.commit();
+		}
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Runs each of PORTFOLIO_STRATEGIES on its own thread with a shared
+	 * incumbent. The heuristic can overestimate, so none of them can prove its
+	 * solution is the shortest, so the solve ends as soon as the first of them
+	 * finishes its search, and the rest are cancelled. A search that finishes
+	 * because the incumbent pruned everything left returns another search's
+	 * solution, so the win goes to the strategy that found the incumbent rather
+	 * than the one that finished. Node counts are the finisher's, since the others
+	 * are still running.
+	 */
+	private List<Move> getSolutionPathPortfolio(State startState, long timeLimitMillis) {
+		Incumbent sharedIncumbent = new Incumbent(timeLimitMillis);
+		CompletionService<List<Move>> completionService = new ExecutorCompletionService<>(portfolioExecutor);
+		Map<Future<List<Move>>, Solver> members = new HashMap<>();
+		for (SearchStrategy strategy : PORTFOLIO_STRATEGIES) {
+			Solver member = new Solver(dimensions, strategy, endgameTable, heuristicMemo);
+			State memberStartState = new State(copyStateArray(startState.getStateArray()),
+					startState.getPathToState(), 0);
+			members.put(completionService.submit(() -> member.search(memberStartState, sharedIncumbent)), member);
+		}
+		RuntimeException failure = null;
+		try {
+			for (int i = 0; i < members.size(); i++) {
+				Future<List<Move>> result = completionService.take();
+				try {
+					result.get();
+					Incumbent.Solution solution = sharedIncumbent.getSolution();
+					Solver finisher = members.get(result);
+					winningStrategy = solution.getStrategy();
+					nodesExpanded += finisher.nodesExpanded;
+					peakQueueSize = finisher.peakQueueSize;
+					peakStoredStates = finisher.peakStoredStates;
+					portfolioWins.get(winningStrategy).increment();
+					return new ArrayList<>(solution.getPath());
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+								: new IllegalStateException(e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} finally {
+			sharedIncumbent.cancel();
+		}
+		throw failure;
+	}
+
+	/*
+	 * Strategy whose search found the last portfolio solve's solution
+	 */
+	public SearchStrategy getWinningStrategy() {
+		return winningStrategy;
+	}
+
+	/*
+	 * Portfolio solves won by each strategy since startup
+	 */
+	public static Map<SearchStrategy, Long> getPortfolioWins() {
+		Map<SearchStrategy, Long> wins = new EnumMap<>(SearchStrategy.class);
+		portfolioWins.forEach((strategy, numWins) -> wins.put(strategy, numWins.sum()));
+		return wins;
+	}
+
+	private static Map<SearchStrategy, LongAdder> createPortfolioWins() {
+		Map<SearchStrategy, LongAdder> wins = new EnumMap<>(SearchStrategy.class);
+		for (SearchStrategy strategy : PORTFOLIO_STRATEGIES) {
+			wins.put(strategy, new LongAdder());
+		}
+		return wins;
+	}
+
+	public void validate(char[][] inputArray) {
+		List<String> errorMsgs = validateInput(inputArray, dimensions);
+		if (!errorMsgs.isEmpty()) {
+			throw new InvalidConfigurationException(errorMsgs);
+		}
+	}
+
+	public DecoderDimensions getDimensions() {
+		return dimensions;
+	}
+
+	/*
+	 * Cheap guess at how long the board will take to solve, for scheduling: 0 if
+	 * the endgame table solves it or the strategy is TWO_PHASE, whose rounds are
+	 * capped, otherwise its heuristic, scaled up by the board's size relative to
+	 * a standard board's, since a bigger board branches more at every depth.
+	 * Assumes the board has been validated.
+	 */
+	public float estimateDifficulty(char[][] stateArray) {
+		if (searchStrategy == SearchStrategy.TWO_PHASE || endgameTable.getDistance(stateArray) >= 0) {
+			return 0;
+		}
+		return getHeuristic(PackedState.pack(stateArray), stateArray) * dimensions.getNumCells()
+				/ DecoderDimensions.STANDARD.getNumCells();
+	}
+
+	/*
+	 * Number of states whose successors were generated by the last solve
+	 */
+	public long getNodesExpanded() {
+		return nodesExpanded;
+	}
+
+	/*
+	 * Queued states whose lookahead heuristic was worked out by this solver's A*
+	 * searches
+	 */
+	public long getLookaheadsComputed() {
+		return lookaheadsComputed;
+	}
+
+	/*
+	 * Queued states that never reached the front of the queue, so their lookahead
+	 * heuristic was never needed
+	 */
+	public long getLookaheadsSkipped() {
+		return lookaheadsSkipped;
+	}
+
+	/*
+	 * States put back in the queue because their lookahead heuristic raised their
+	 * cost
+	 */
+	public long getStatesRequeued() {
+		return statesRequeued;
+	}
+
+	/*
+	 * Reaching a state in the endgame table gives a complete solution: the path to
+	 * it plus its stored moves. The shortest of these is returned if it beats the
+	 * path to the first solved state checked. States outside the table are more
+	 * than the table's depth from solved, so those on paths too long to beat it
+	 * aren't searched.
+	 *
+	 * States are queued by their cheap heuristic. The first time one reaches the
+	 * front, its more expensive lookahead heuristic is worked out, and if that
+	 * raises its cost it goes back in the queue instead of being expanded (lazy
+	 * A*). Most queued states never reach the front, so their lookahead is never
+	 * needed.
+	 *
+	 * TWO_PHASE stops as soon as the weighted search reaches the endgame table,
+	 * and finishes with the table's moves. If it expands MAX_TWO_PHASE_NODES
+	 * first, it ends the round by returning null, with the expanded board with
+	 * the lowest heuristic as nextRoundState. Each round starts from a lower
+	 * heuristic, so the rounds run out, and only a round that finds no lower
+	 * board goes on without a limit.
+	 */
 	private List<Move> getSolutionPath(State startState) {
-		float startHeuristic = computeHeuristic(startState);
+		List<Move> startEndgameSolution = endgameTable.getSolution(startState.getStateArray());
+		if (startEndgameSolution != null) {
+			incumbent.offer(addMovesToPath(startState.getPathToState(), startEndgameSolution), searchStrategy);
+			return incumbent.getSolutionPath();
+		}
+		float heuristicWeight = getHeuristicWeight();
+		Set<State> endgameStates = new HashSet<>();
+		Map<State, Float> lookaheadHeuristics = new HashMap<>();
+		float startHeuristic = getHeuristic(startState);
+		float startCost = startState.getPathToState().size() + heuristicWeight * startHeuristic;
+		long startNodesExpanded = nodesExpanded;
+		State mostPromisingState = null;
+		float mostPromisingHeuristic = startHeuristic;
 		Map<State, Float> lowestStateCosts = new HashMap<>();
-		stateHeuristics.put(startState, startHeuristic);
-		lowestStateCosts.put(startState, startHeuristic);
-		PriorityQueue<State> statesToCheck = new PriorityQueue<>(
-				new AStarComparator().thenComparing(Comparator.comparingInt(State::getQueueInsertNum)));
-		statesToCheck.add(startState);
+		lowestStateCosts.put(startState, startCost);
+		PriorityQueue<QueuedState> statesToCheck = new PriorityQueue<>();
+		statesToCheck.add(new QueuedState(startState, startCost));
 		while (!statesToCheck.isEmpty()) {
-			State currentState = statesToCheck.remove();
+			incumbent.checkCancelled();
+			State currentState = statesToCheck.remove().state;
 			List<Move> pathToCurrentState = currentState.getPathToState();
-			float currentHeuristic = stateHeuristics.get(currentState);
-			if (pathToCurrentState.size() + currentHeuristic <= lowestStateCosts.get(currentState)) {
+			Float lookaheadHeuristic = lookaheadHeuristics.get(currentState);
+			float currentHeuristic = lookaheadHeuristic != null ? lookaheadHeuristic : getHeuristic(currentState);
+			if (lowestStateCosts.size() > MAX_STORED_STATES) {
+				return runPhase(SearchStrategy.IDA_STAR + " fallback", () -> getSolutionPathBounded(startState));
+			}
+			if (pathToCurrentState.size() + heuristicWeight * currentHeuristic <= lowestStateCosts.get(currentState)) {
 				if (isSolution(currentState.getStateArray())) {
-					return pathToCurrentState;
+					lookaheadsSkipped += lowestStateCosts.size() - lookaheadHeuristics.size();
+					return incumbent.getSolutionPath();
+				}
+				List<Move> bestSolutionPath = incumbent.getSolutionPath();
+				if (bestSolutionPath != null && !canImprove(pathToCurrentState.size(), bestSolutionPath)
+						&& !endgameStates.contains(currentState)) {
+					continue;
 				}
 				List<State> successors = getSuccessors(currentState);
+				if (lookaheadHeuristic == null) {
+					lookaheadHeuristic = computeLookaheadHeuristic(currentState, currentHeuristic, successors);
+					lookaheadHeuristics.put(currentState, lookaheadHeuristic);
+					lookaheadsComputed++;
+					if (lookaheadHeuristic > currentHeuristic) {
+						float newCost = pathToCurrentState.size() + heuristicWeight * lookaheadHeuristic;
+						lowestStateCosts.put(currentState, newCost);
+						statesToCheck.add(new QueuedState(currentState, newCost));
+						statesRequeued++;
+						continue;
+					}
+				}
+				nodesExpanded++;
+				if (searchStrategy == SearchStrategy.TWO_PHASE) {
+					if (currentHeuristic < mostPromisingHeuristic) {
+						mostPromisingState = currentState;
+						mostPromisingHeuristic = currentHeuristic;
+					}
+					if (mostPromisingState != null && nodesExpanded - startNodesExpanded >= MAX_TWO_PHASE_NODES
+							&& incumbent.getSolutionPath() == null) {
+						lookaheadsSkipped += lowestStateCosts.size() - lookaheadHeuristics.size();
+						nextRoundState = mostPromisingState;
+						return null;
+					}
+				}
 				for (State newState : successors) {
-					float newHeuristic;
-					if (stateHeuristics.containsKey(newState)) {
-						newHeuristic = stateHeuristics.get(newState);
-					} else {
-						newHeuristic = computeHeuristic(newState);
-						stateHeuristics.put(newState, newHeuristic);
+					int pathLength = newState.getPathToState().size();
+					int endgameDistance = endgameTable.getDistance(newState.getStateArray());
+					if (endgameDistance >= 0) {
+						endgameStates.add(newState);
+						if (bestSolutionPath == null || pathLength + endgameDistance < bestSolutionPath.size()) {
+							incumbent.offer(addMovesToPath(newState.getPathToState(),
+									endgameTable.getSolution(newState.getStateArray())), searchStrategy);
+							bestSolutionPath = incumbent.getSolutionPath();
+						}
+					} else if (bestSolutionPath != null && !canImprove(pathLength, bestSolutionPath)) {
+						continue;
 					}
-					float newCost = newState.getPathToState().size() + newHeuristic;
+					float newHeuristic = lookaheadHeuristics.containsKey(newState) ? lookaheadHeuristics.get(newState)
+							: getHeuristic(newState);
+					float newCost = newState.getPathToState().size() + heuristicWeight * newHeuristic;
 					if (!lowestStateCosts.containsKey(newState) || newCost < lowestStateCosts.get(newState)) {
-						statesToCheck.add(newState);
+						statesToCheck.add(new QueuedState(newState, newCost));
 						lowestStateCosts.put(newState, newCost);
 					}
 				}
+				peakQueueSize = Math.max(peakQueueSize, statesToCheck.size());
+				peakStoredStates = Math.max(peakStoredStates, lowestStateCosts.size());
+				if (searchStrategy == SearchStrategy.TWO_PHASE && incumbent.getSolutionPath() != null) {
+					break;
+				}
 			}
 		}
+		lookaheadsSkipped += lowestStateCosts.size() - lookaheadHeuristics.size();
+		if (incumbent.getSolutionPath() != null) {
+			return incumbent.getSolutionPath();
+		}
 		throw new IllegalArgumentException("No solution found. Invalid input configuration");
 	}
 
+	private float getHeuristicWeight() {
+		if (searchStrategy == SearchStrategy.WEIGHTED_A_STAR) {
+			return HEURISTIC_WEIGHT;
+		}
+		return searchStrategy == SearchStrategy.TWO_PHASE ? TWO_PHASE_HEURISTIC_WEIGHT : 1;
+	}
+
+	/*
+	 * A queue entry keeps the cost the state was queued with, since a state's
+	 * heuristic can be raised while other entries for it are still queued. Ties go
+	 * to the state queued first.
+	 */
+	private static class QueuedState implements Comparable<QueuedState> {
+
+		private final State state;
+		private final float cost;
+
+		QueuedState(State state, float cost) {
+			this.state = state;
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo(QueuedState other) {
+			int comparison = Float.compare(cost, other.cost);
+			return comparison != 0 ? comparison
+					: Integer.compare(state.getQueueInsertNum(), other.state.getQueueInsertNum());
+		}
+
+	}
+
+	/*
+	 * IDA*: depth-first searches bounded by path length + heuristic, raising the
+	 * bound to the smallest cost that exceeded it until a solution is found. Only
+	 * the states on the current path are stored, packed, to avoid cycles. Because
+	 * the heuristic can overestimate, the first solution found within a bound isn't
+	 * always the shortest, so the rest of that iteration is searched for a shorter
+	 * one. Successors are tried cheapest first so that a short solution is found
+	 * early and prunes most of that remaining search.
+	 */
+	private List<Move> getSolutionPathBounded(State startState) {
+		char[][] stateArray = copyStateArray(startState.getStateArray());
+		Set<PackedState> statesOnPath = new HashSet<>();
+		PackedState startPackedState = PackedState.pack(stateArray);
+		statesOnPath.add(startPackedState);
+		float startHeuristic = getHeuristic(startPackedState, stateArray);
+		float costBound = startHeuristic;
+		boundedSolutionFound = false;
+		while (true) {
+			nextCostBound = Float.POSITIVE_INFINITY;
+			boundedSearch(stateArray, startState.getPathToState(), startHeuristic, costBound, statesOnPath);
+			if (boundedSolutionFound || nextCostBound == Float.POSITIVE_INFINITY) {
+				break;
+			}
+			costBound = nextCostBound;
+		}
+		if (incumbent.getSolutionPath() != null) {
+			return incumbent.getSolutionPath();
+		}
+		throw new IllegalArgumentException("No solution found. Invalid input configuration");
+	}
+
+	private void boundedSearch(char[][] stateArray, List<Move> pathToState, float heuristic, float costBound,
+			Set<PackedState> statesOnPath) {
+		incumbent.checkCancelled();
+		List<Move> bestSolutionPath = incumbent.getSolutionPath();
+		if (bestSolutionPath != null && pathToState.size() >= bestSolutionPath.size()) {
+			return;
+		}
+		List<Move> endgameSolution = endgameTable.getSolution(stateArray);
+		if (endgameSolution != null) {
+			incumbent.offer(addMovesToPath(pathToState, endgameSolution), searchStrategy);
+			boundedSolutionFound = true;
+			return;
+		}
+		if (bestSolutionPath != null && !canImprove(pathToState.size(), bestSolutionPath)) {
+			return;
+		}
+		float cost = pathToState.size() + heuristic;
+		if (cost > costBound) {
+			nextCostBound = Math.min(nextCostBound, cost);
+			return;
+		}
+		nodesExpanded++;
+		peakStoredStates = Math.max(peakStoredStates, statesOnPath.size());
+		List<BoundedSuccessor> successors = new ArrayList<>();
+		for (Move move : getBoundedSearchMoves(stateArray, pathToState)) {
+			applyMove(stateArray, move);
+			PackedState packedState = PackedState.pack(stateArray);
+			if (!statesOnPath.contains(packedState)) {
+				List<Move> newPath = addMoveToPath(pathToState, move, dimensions.getNumCols());
+				successors.add(new BoundedSuccessor(move, newPath, packedState,
+						getHeuristic(packedState, stateArray)));
+			}
+			undoMove(stateArray, move);
+		}
+		Collections.sort(successors);
+		for (BoundedSuccessor successor : successors) {
+			applyMove(stateArray, successor.move);
+			statesOnPath.add(successor.packedState);
+			boundedSearch(stateArray, successor.pathToState, successor.heuristic, costBound, statesOnPath);
+			statesOnPath.remove(successor.packedState);
+			undoMove(stateArray, successor.move);
+		}
+	}
+
+	private static class BoundedSuccessor implements Comparable<BoundedSuccessor> {
+
+		private final Move move;
+		private final List<Move> pathToState;
+		private final PackedState packedState;
+		private final float heuristic;
+
+		BoundedSuccessor(Move move, List<Move> pathToState, PackedState packedState, float heuristic) {
+			this.move = move;
+			this.pathToState = pathToState;
+			this.packedState = packedState;
+			this.heuristic = heuristic;
+		}
+
+		@Override
+		public int compareTo(BoundedSuccessor other) {
+			return Float.compare(pathToState.size() + heuristic, other.pathToState.size() + other.heuristic);
+		}
+
+	}
+
+	/*
+	 * Whether a state that isn't in the endgame table could still lead to a
+	 * shorter solution. It is more than the table's depth from solved.
+	 */
+	private boolean canImprove(int pathLength, List<Move> solutionPath) {
+		return pathLength + endgameTable.getDepth() + 1 < solutionPath.size();
+	}
+
+	/*
+	 * Moves for the depth-first search. A row is rotated by its full amount in a
+	 * single move, and consecutive rotations are only allowed in increasing row
+	 * order, so each combination of rotations is reached by one path instead of
+	 * every interleaving of single steps.
+	 */
+	private List<Move> getBoundedSearchMoves(char[][] stateArray, List<Move> pathToState) {
+		List<Move> moves = new ArrayList<>();
+		int numRows = dimensions.getNumRows();
+		int lastRotatedRow = -1;
+		if (!pathToState.isEmpty() && pathToState.get(pathToState.size() - 1) instanceof RotateMove) {
+			lastRotatedRow = pathToState.get(pathToState.size() - 1).getRow();
+		}
+		for (int rowNum = lastRotatedRow + 1; rowNum < numRows; rowNum++) {
+			if (!dimensions.isRotatableRow(rowNum)) {
+				continue;
+			}
+			for (int rotateAmount = 1; rotateAmount < dimensions.getNumCols(); rotateAmount++) {
+				moves.add(new RotateMove(MoveType.rotation(rowNum, numRows, true), rotateAmount, rowNum));
+			}
+		}
+		for (Move move : getLegalMoves(stateArray)) {
+			if (move instanceof SlideMove) {
+				moves.add(move);
+			}
+		}
+		return moves;
+	}
+
 	/*
 	 * Validation functions
 	 */
 
 	@VisibleForTesting
 	static List<String> validateInput(char[][] inputArray) {
+		return validateInput(inputArray, DecoderDimensions.STANDARD);
+	}
+
+	@VisibleForTesting
+	static List<String> validateInput(char[][] inputArray, DecoderDimensions dimensions) {
 		List<String> errorMsgs = new ArrayList<>();
-		if (inputArray.length != NUM_ROWS) {
-			errorMsgs.add(String.format(WRONG_NUM_ROWS, NUM_ROWS));
+		int numRows = dimensions.getNumRows();
+		int numCols = dimensions.getNumCols();
+		if (inputArray.length != numRows) {
+			errorMsgs.add(String.format(WRONG_NUM_ROWS, numRows));
 		}
 		Map<Character, Integer> charCounts = new HashMap<>();
 		for (int rowNum = 0; rowNum < inputArray.length; rowNum++) {
 			char[] row = inputArray[rowNum];
-			if (rowNum < NUM_ROWS && row.length != NUM_COLS) {
-				errorMsgs.add(String.format(WRONG_ROW_LENGTH, rowNum + 1, NUM_COLS));
+			if (rowNum < numRows && row.length != numCols) {
+				errorMsgs.add(String.format(WRONG_ROW_LENGTH, rowNum + 1, numCols));
 			}
 			for (char square : row) {
-				if (!CHAR_SET.contains(square)) {
+				if (!dimensions.getCharSet().contains(square)) {
 					errorMsgs.add(String.format(INVALID_CHARACTER, square));
 				}
 				charCounts.put(square, charCounts.getOrDefault(square, 0) + 1);
 			}
 		}
-		for (char character : CHAR_SET) {
+		for (char character : dimensions.getCharSet()) {
 			int count = charCounts.getOrDefault(character, 0);
-			if (character == '-' && count != 1) {
+			int requiredCount = dimensions.getRequiredCount(character);
+			if (character == '-' && count != requiredCount) {
 				errorMsgs.add(ONE_BLANK_SQUARE_ONLY + count);
 			}
-			if (character == 'w' && count != NUM_ROWS - 1) {
-				errorMsgs.add(TWO_WHITE_SQUARES_REQUIRED + count);
+			if (character == 'w' && count != requiredCount) {
+				errorMsgs.add(String.format(WHITE_SQUARES_REQUIRED, requiredCount, count));
 			}
-			if (character != 'w' && character != '-' && count != NUM_ROWS) {
-				errorMsgs.add(String.format(THREE_SQUARES_PER_CHARACTER, character, count));
+			if (character != 'w' && character != '-' && count != requiredCount) {
+				errorMsgs.add(String.format(SQUARES_PER_CHARACTER, requiredCount, character, count));
 			}
 		}
 		return errorMsgs;
@@ -149,28 +692,44 @@ public class Solver {
 	 * Heuristic functions
 	 */
 
-	private class AStarComparator implements Comparator<State> {
+	private float getHeuristic(State state) {
+		return getHeuristic(PackedState.pack(state.getStateArray()), state.getStateArray());
+	}
 
-		@Override
-		public int compare(State state1, State state2) {
-			List<Move> path1 = state1.getPathToState();
-			List<Move> path2 = state2.getPathToState();
-			return Float.compare(path1.size() + stateHeuristics.get(state1),
-					path2.size() + stateHeuristics.get(state2));
+	private float getHeuristic(PackedState packedState, char[][] stateArray) {
+		float heuristic = heuristicMemo.get(packedState);
+		if (heuristic < 0) {
+			heuristic = computeHeuristic(stateArray);
+			heuristicMemo.put(packedState, heuristic);
 		}
+		return heuristic;
+	}
 
+	/*
+	 * One move of lookahead: the lowest successor heuristic plus the cost of the
+	 * move to it, and never less than the state's own heuristic. It takes as much
+	 * work as expanding the state, which is why it is left until needed.
+	 */
+	private float computeLookaheadHeuristic(State state, float heuristic, List<State> successors) {
+		int pathLength = state.getPathToState().size();
+		float lookaheadHeuristic = Float.POSITIVE_INFINITY;
+		for (State successor : successors) {
+			float successorCost = successor.getPathToState().size() - pathLength + getHeuristic(successor);
+			lookaheadHeuristic = Math.min(lookaheadHeuristic, successorCost);
+		}
+		return Math.max(heuristic, lookaheadHeuristic);
 	}
-	
-	private static float computeHeuristic(State state) {
-		char[][] stateArray = state.getStateArray();
+
+	private float computeHeuristic(char[][] stateArray) {
+		int numCols = dimensions.getNumCols();
 		float heuristicVal = 0;
 		for (char[] row : stateArray) {
 			Set<Character> rowCharSet = new HashSet<>(Chars.asList(row));
-			heuristicVal += (NUM_COLS - rowCharSet.size()) * 3;
+			heuristicVal += (numCols - rowCharSet.size()) * 3;
 		}
 		Map<Character, List<Integer>> colorComparisonColumn = new HashMap<>();
 		for (int colNum = 0; colNum < stateArray[0].length; colNum++) {
-			char square = stateArray[1][colNum];
+			char square = stateArray[dimensions.getReferenceRow()][colNum];
 			if (square == '-') { // We treat blank tile as white when matching
 				square = 'w';
 			}
@@ -179,7 +738,10 @@ public class Solver {
 			}
 			colorComparisonColumn.get(square).add(colNum);
 		}
-		for (int rowNum = 0; rowNum < stateArray.length; rowNum += 2) {
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			if (!dimensions.isRotatableRow(rowNum)) {
+				continue;
+			}
 			Set<Integer> requiredRotations = new HashSet<>();
 			for (int colNum = 0; colNum < stateArray[0].length; colNum++) {
 				char square = stateArray[rowNum][colNum];
@@ -189,7 +751,7 @@ public class Solver {
 				if (colorComparisonColumn.containsKey(square)) {
 					int requiredRotation = Integer.MAX_VALUE;
 					for (int compColumn : colorComparisonColumn.get(square)) {
-						int rotation = getRotation(colNum, compColumn);
+						int rotation = getRotation(colNum, compColumn, numCols);
 						requiredRotation = Math.abs(rotation) < Math.abs(requiredRotation) ? rotation
 								: requiredRotation;
 					}
@@ -198,15 +760,19 @@ public class Solver {
 					}
 				}
 			}
-			heuristicVal += getRotationsHeuristic(requiredRotations);
+			heuristicVal += getRotationsHeuristic(requiredRotations, numCols);
 		}
 		return heuristicVal;
 	}
 
 	@VisibleForTesting
 	static int getRotation(int colNum, int compColumn) {
-		int rightRotation = Math.floorMod(compColumn - colNum, NUM_COLS);
-		int leftRotation = rightRotation - NUM_COLS;
+		return getRotation(colNum, compColumn, NUM_COLS);
+	}
+
+	private static int getRotation(int colNum, int compColumn, int numCols) {
+		int rightRotation = Math.floorMod(compColumn - colNum, numCols);
+		int leftRotation = rightRotation - numCols;
 		return rightRotation <= Math.abs(leftRotation) ? rightRotation : leftRotation;
 	}
 
@@ -223,7 +789,7 @@ public class Solver {
 
 	}
 
-	private static double getRotationsHeuristic(Set<Integer> requiredRotations) {
+	private static double getRotationsHeuristic(Set<Integer> requiredRotations, int numCols) {
 		if (requiredRotations.isEmpty()) {
 			return 0;
 		}
@@ -239,8 +805,8 @@ public class Solver {
 				return 2 + posRotations.get(posRotations.size() - 1) * 2.5;
 			}
 		}
-		int counterClockwise = Math.floorMod(rotationsList.get(rotationsList.size() - 1), NUM_COLS);
-		int clockwise = Math.floorMod(NUM_COLS - rotationsList.get(0), NUM_COLS);
+		int counterClockwise = Math.floorMod(rotationsList.get(rotationsList.size() - 1), numCols);
+		int clockwise = Math.floorMod(numCols - rotationsList.get(0), numCols);
 		return Math.min(counterClockwise, clockwise) * 2.5;
 	}
 
@@ -248,67 +814,69 @@ public class Solver {
 	 * New state generator functions
 	 */
 
-	private static List<State> getSuccessors(State state) {
+	private List<State> getSuccessors(State state) {
 		List<State> successors = new ArrayList<>();
 		char[][] stateArray = state.getStateArray();
 		List<Move> pathToState = state.getPathToState();
 		int queueInsertNum = state.getQueueInsertNum();
-
-		char[][] stateArrayTL = copyStateArray(stateArray);
-		rotateLeft(stateArrayTL[0]);
-		RotateMove moveTL = new RotateMove(MoveType.TL, 1);
-		State stateTL = new State(stateArrayTL, addMoveToPath(pathToState, moveTL), queueInsertNum + 1);
-		successors.add(stateTL);
-
-		char[][] stateArrayTR = copyStateArray(stateArray);
-		rotateRight(stateArrayTR[0]);
-		RotateMove moveTR = new RotateMove(MoveType.TR, 1);
-		State stateTR = new State(stateArrayTR, addMoveToPath(pathToState, moveTR), queueInsertNum + 2);
-		successors.add(stateTR);
-
-		char[][] stateArrayBL = copyStateArray(stateArray);
-		rotateLeft(stateArrayBL[2]);
-		RotateMove moveBL = new RotateMove(MoveType.BL, 1);
-		State stateBL = new State(stateArrayBL, addMoveToPath(pathToState, moveBL), queueInsertNum + 3);
-		successors.add(stateBL);
-
-		char[][] stateArrayBR = copyStateArray(stateArray);
-		rotateRight(stateArrayBR[2]);
-		RotateMove moveBR = new RotateMove(MoveType.BR, 1);
-		State stateBR = new State(stateArrayBR, addMoveToPath(pathToState, moveBR), queueInsertNum + 4);
-		successors.add(stateBR);
-
-		int[] blankPosition = getBlankPosition(state.getStateArray());
-		int blankRow = blankPosition[0];
-		int blankCol = blankPosition[1];
-		if (blankRow == 0) {
-			char[][] stateArrayMU = copyStateArray(stateArray);
-			slide(stateArrayMU, blankCol, 0, 1);
-			SlideMove moveMU = new SlideMove(MoveType.MU);
-			State stateMU = new State(stateArrayMU, addMoveToPath(pathToState, moveMU), queueInsertNum + 5);
-			successors.add(stateMU);
-		} else if (blankRow == 1) {
-			char[][] stateArrayTD = copyStateArray(stateArray);
-			slide(stateArrayTD, blankCol, 1, 0);
-			SlideMove moveTD = new SlideMove(MoveType.TD);
-			State stateTD = new State(stateArrayTD, addMoveToPath(pathToState, moveTD), queueInsertNum + 5);
-			successors.add(stateTD);
-
-			char[][] stateArrayBU = copyStateArray(stateArray);
-			slide(stateArrayBU, blankCol, 1, 2);
-			SlideMove moveBU = new SlideMove(MoveType.BU);
-			State stateBU = new State(stateArrayBU, addMoveToPath(pathToState, moveBU), queueInsertNum + 6);
-			successors.add(stateBU);
-		} else if (blankRow == 2) {
-			char[][] stateArrayMD = copyStateArray(stateArray);
-			slide(stateArrayMD, blankCol, 2, 1);
-			SlideMove moveMD = new SlideMove(MoveType.MD);
-			State stateMD = new State(stateArrayMD, addMoveToPath(pathToState, moveMD), queueInsertNum + 5);
-			successors.add(stateMD);
+		List<Move> legalMoves = getLegalMoves(stateArray);
+		for (int i = 0; i < legalMoves.size(); i++) {
+			Move move = legalMoves.get(i);
+			char[][] newStateArray = copyStateArray(stateArray);
+			applyMove(newStateArray, move);
+			successors.add(new State(newStateArray, addMoveToPath(pathToState, move, dimensions.getNumCols()),
+					queueInsertNum + i + 1));
 		}
 		return successors;
 	}
 
+	/*
+	 * Every single-step move from the state: a rotation by 1 each way for each
+	 * rotatable row, then a slide into the blank from the row above and below it.
+	 */
+	@VisibleForTesting
+	List<Move> getLegalMoves(char[][] stateArray) {
+		List<Move> legalMoves = new ArrayList<>();
+		int numRows = dimensions.getNumRows();
+		for (int rowNum = 0; rowNum < numRows; rowNum++) {
+			if (dimensions.isRotatableRow(rowNum)) {
+				legalMoves.add(new RotateMove(MoveType.rotation(rowNum, numRows, true), 1, rowNum));
+				legalMoves.add(new RotateMove(MoveType.rotation(rowNum, numRows, false), 1, rowNum));
+			}
+		}
+		int blankRow = getBlankPosition(stateArray)[0];
+		if (blankRow > 0) {
+			legalMoves.add(new SlideMove(MoveType.slide(blankRow - 1, numRows, true), blankRow - 1));
+		}
+		if (blankRow < numRows - 1) {
+			legalMoves.add(new SlideMove(MoveType.slide(blankRow + 1, numRows, false), blankRow + 1));
+		}
+		return legalMoves;
+	}
+
+	@VisibleForTesting
+	static void applyMove(char[][] stateArray, Move move) {
+		if (move instanceof RotateMove) {
+			boolean left = MoveType.leftRotateMoves.contains(move.getMoveType());
+			rotate(stateArray[move.getRow()], left, ((RotateMove) move).getRotateAmount());
+		} else {
+			int blankCol = getBlankPosition(stateArray)[1];
+			int blankRow = MoveType.downSlideMoves.contains(move.getMoveType()) ? move.getRow() + 1 : move.getRow() - 1;
+			slide(stateArray, blankCol, blankRow, move.getRow());
+		}
+	}
+
+	private static void undoMove(char[][] stateArray, Move move) {
+		if (move instanceof RotateMove) {
+			boolean left = MoveType.leftRotateMoves.contains(move.getMoveType());
+			rotate(stateArray[move.getRow()], !left, ((RotateMove) move).getRotateAmount());
+		} else {
+			int blankCol = getBlankPosition(stateArray)[1];
+			int squareRow = MoveType.downSlideMoves.contains(move.getMoveType()) ? move.getRow() + 1 : move.getRow() - 1;
+			slide(stateArray, blankCol, move.getRow(), squareRow);
+		}
+	}
+
 	private static int[] getBlankPosition(char[][] stateArray) {
 		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
 			int blankCol = Chars.indexOf(stateArray[rowNum], '-');
@@ -320,7 +888,7 @@ public class Solver {
 	}
 
 	private static char[][] copyStateArray(char[][] stateArray) {
-		char[][] stateArrayCopy = new char[NUM_ROWS][NUM_COLS];
+		char[][] stateArrayCopy = new char[stateArray.length][];
 		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
 			stateArrayCopy[rowNum] = Arrays.copyOf(stateArray[rowNum], stateArray[rowNum].length);
 		}
@@ -340,6 +908,16 @@ public class Solver {
 		row[0] = tempChar;
 	}
 
+	private static void rotate(char[] row, boolean left, int rotateAmount) {
+		for (int i = 0; i < rotateAmount; i++) {
+			if (left) {
+				rotateLeft(row);
+			} else {
+				rotateRight(row);
+			}
+		}
+	}
+
 	private static void slide(char[][] stateArray, int blankCol, int blankRow, int nonBlankRow) {
 		stateArray[blankRow][blankCol] = stateArray[nonBlankRow][blankCol];
 		stateArray[nonBlankRow][blankCol] = '-';
@@ -352,6 +930,10 @@ public class Solver {
 
 	@VisibleForTesting
 	static List<Move> addMoveToPath(List<Move> path, Move newMove) {
+		return addMoveToPath(path, newMove, NUM_COLS);
+	}
+
+	private static List<Move> addMoveToPath(List<Move> path, Move newMove, int numCols) {
 		List<Move> newPath = new ArrayList<>(path);
 		if (path.isEmpty() || (!(newMove instanceof RotateMove))) {
 			newPath.add(newMove);
@@ -367,21 +949,44 @@ public class Solver {
 		if (newPath.size() > 1 && (newPath.get(newPath.size() - 2) instanceof RotateMove)) {
 			secondLastRotateMove = (RotateMove) newPath.get(newPath.size() - 2);
 		}
-		if (lastMove.getMoveType() == newMove.getMoveType()) {
-			handleRedundantRotations(newPath, newPath.size() - 1, lastRotateMove.getRotateAmount(), newMove.getMoveType());
-		} else if (secondLastRotateMove != null && secondLastRotateMove.getMoveType() == newMove.getMoveType()) {
-			handleRedundantRotations(newPath, newPath.size() - 2, secondLastRotateMove.getRotateAmount(), newMove.getMoveType());
+		if (isSameRotation(lastMove, newMove)) {
+			handleRedundantRotations(newPath, newPath.size() - 1, lastRotateMove.getRotateAmount(), newMove, numCols);
+		} else if (secondLastRotateMove != null && isSameRotation(secondLastRotateMove, newMove)) {
+			handleRedundantRotations(newPath, newPath.size() - 2, secondLastRotateMove.getRotateAmount(), newMove, numCols);
 		} else {
 			newPath.add(newMove);
 		}
 		return newPath;
 	}
 	
-	private static void handleRedundantRotations(List<Move> path, int currentMoveIndex, int currentRotateAmount, MoveType newMoveType) {
-		if (currentRotateAmount + 1 == NUM_COLS) {
+	/*
+	 * Adds moves that may rotate by more than 1, one step at a time, so that they
+	 * combine with the path's last rotations as single steps would
+	 */
+	private List<Move> addMovesToPath(List<Move> path, List<Move> newMoves) {
+		List<Move> newPath = path;
+		for (Move newMove : newMoves) {
+			if (newMove instanceof RotateMove) {
+				Move step = new RotateMove(newMove.getMoveType(), 1, newMove.getRow());
+				for (int i = 0; i < ((RotateMove) newMove).getRotateAmount(); i++) {
+					newPath = addMoveToPath(newPath, step, dimensions.getNumCols());
+				}
+			} else {
+				newPath = addMoveToPath(newPath, newMove, dimensions.getNumCols());
+			}
+		}
+		return newPath;
+	}
+
+	private static boolean isSameRotation(Move move, Move newMove) {
+		return move.getMoveType() == newMove.getMoveType() && move.getRow() == newMove.getRow();
+	}
+
+	private static void handleRedundantRotations(List<Move> path, int currentMoveIndex, int currentRotateAmount, Move newMove, int numCols) {
+		if (currentRotateAmount + 1 == numCols) {
 			path.remove(currentMoveIndex);
 		} else {
-			RotateMove combinedMove = new RotateMove(newMoveType, (currentRotateAmount + 1) % NUM_COLS);
+			RotateMove combinedMove = new RotateMove(newMove.getMoveType(), (currentRotateAmount + 1) % numCols, newMove.getRow());
 			path.set(currentMoveIndex, combinedMove);
 		}
 	}
@@ -391,16 +996,18 @@ public class Solver {
 	 * function (path length + heuristic) for each state misleads it into looking at
 	 * a longer rotation before a shorter one in the opposite direction.
 	 */
-	private static void shortenRotations(List<Move> solutionPath) {
+	private void shortenRotations(List<Move> solutionPath) {
+		int numCols = dimensions.getNumCols();
 		for (int i = 0; i < solutionPath.size(); i++) {
 			Move move = solutionPath.get(i);
 			if (!(move instanceof RotateMove)) {
 				continue;
 			}
 			RotateMove rotateMove = (RotateMove) move;
-			if (rotateMove.getRotateAmount() > NUM_COLS / 2) {
+			if (rotateMove.getRotateAmount() > numCols / 2) {
 				MoveType oppositeMoveType = MoveType.valueOf(rotateMove.getMoveType().getOppositeMove());
-				RotateMove oppositeMove = new RotateMove(oppositeMoveType, NUM_COLS - rotateMove.getRotateAmount());
+				RotateMove oppositeMove = new RotateMove(oppositeMoveType, numCols - rotateMove.getRotateAmount(),
+						rotateMove.getRow());
 				solutionPath.set(i, oppositeMove);
 			}
 		}
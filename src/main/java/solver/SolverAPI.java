@@ -1,30 +1,223 @@
 package solver;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+import moves.SlideMove;
 
 @SpringBootApplication
 @RestController
 public class SolverAPI {
 	
 	private static final String corsOrigin = "https://www.rubiksdecodersolver.com/";
+	private static final Logger log = LoggerFactory.getLogger(SolverAPI.class);
+	/*
+	 * Sessions are dropped, least recently used first, once together they could
+	 * take more than this
+	 */
+	private static final long MAX_SESSION_MEMORY = 128L * 1024 * 1024;
+	private static final int MAX_SESSIONS = (int) (MAX_SESSION_MEMORY / SolveSession.MAX_MEMORY_ESTIMATE);
+	private static final int SESSION_TIMEOUT_MINUTES = 30;
+	private static final CacheControl SOLUTION_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic();
+	
+	public static final String UNSUPPORTED_STRATEGY = "Strategy must be %s or %s";
+	
+	private final SolutionStore solutionStore;
+	private final SearchStrategy searchStrategy;
+	private final SlowSolveLog slowSolveLog;
+	private final long slowSolveMillis;
+	private final long slowSolveNodes;
+	private final float hardDifficulty;
+	private final long timeLimitMillis;
+	private final SolveCoalescer solveCoalescer = new SolveCoalescer();
+	private final SolveScheduler solveScheduler;
+	private final AtomicLong numStoreHits = new AtomicLong();
+	private final AtomicLong numSessionHits = new AtomicLong();
+	private final AtomicLong numNotModified = new AtomicLong();
+	private final Cache<String, SolveSession> solveSessions = CacheBuilder.newBuilder().maximumSize(MAX_SESSIONS)
+			.expireAfterAccess(SESSION_TIMEOUT_MINUTES, TimeUnit.MINUTES).build();
+	
+	/*
+	 * An empty store path runs without the persistent solution store. The store
+	 * only lasts as long as the filesystem under its path, which on a Heroku dyno
+	 * is until the next restart, so the path is configurable (see README.md).
+	 * Setting the strategy to PORTFOLIO races several searches for each board.
+	 * Searches that take at least the slow-solve time or expand at least the
+	 * slow-solve number of nodes are written to the slow-solve log, unless its
+	 * path is empty.
+	 * Searches whose estimated difficulty is at least the hard difficulty run in
+	 * the hard lane, which allows fewer concurrent searches than the easy lane.
+	 * Only standard boards are scheduled by their difficulty; a bigger board the
+	 * endgame table can't solve always runs in the hard lane.
+	 * A search that runs for longer than the time limit, not counting time spent
+	 * waiting for its lane, gets a 503 instead of a solution. Clients can ask
+	 * for boards up to 6x10, so this is what bounds a big board's search.
+	 */
+	public SolverAPI(@Value("${solver.store.path:solutions.log}") String storePath,
+			@Value("${solver.strategy:A_STAR}") SearchStrategy searchStrategy,
+			@Value("${solver.slowsolve.path:slow-solves.jsonl}") String slowSolvePath,
+			@Value("${solver.slowsolve.ms:2000}") long slowSolveMillis,
+			@Value("${solver.slowsolve.nodes:200000}") long slowSolveNodes,
+			@Value("${solver.schedule.hard.difficulty:20}") float hardDifficulty,
+			@Value("${solver.schedule.easy.concurrency:4}") int easyConcurrency,
+			@Value("${solver.schedule.hard.concurrency:2}") int hardConcurrency,
+			@Value("${solver.schedule.aging.ms:100}") long agingMillis,
+			@Value("${solver.timelimit.ms:25000}") long timeLimitMillis) {
+		solutionStore = storePath.isEmpty() ? null : openSolutionStore(storePath);
+		this.searchStrategy = searchStrategy;
+		slowSolveLog = slowSolvePath.isEmpty() ? null : new SlowSolveLog(Paths.get(slowSolvePath));
+		this.slowSolveMillis = slowSolveMillis;
+		this.slowSolveNodes = slowSolveNodes;
+		this.hardDifficulty = hardDifficulty;
+		this.timeLimitMillis = timeLimitMillis;
+		solveScheduler = new SolveScheduler(hardDifficulty, easyConcurrency, hardConcurrency, agingMillis);
+		EndgameTable.forDimensions(DecoderDimensions.STANDARD); // Build before the first request needs it
+	}
 	
 	public static void main(String[] args) {
 		SpringApplication.run(SolverAPI.class, args);
 	}
 	
+	/*
+	 * Boards solved with the same session id share a solve session, so that a
+	 * board reached by following the solution, or one move off it, is answered
+	 * without searching. Other boards are searched as usual. A request
+	 * can ask for TWO_PHASE, for a quick but longer solution, instead of the
+	 * configured strategy. Only the configured strategy's solutions are stored,
+	 * and only its requests are answered from the store.
+	 *
+	 * Without a session the solution depends only on the board, so it can be
+	 * cached anywhere. Its ETag is the same for every board with the same
+	 * canonical form, and a request whose If-None-Match matches it gets a 304
+	 * without solving. Session responses depend on the session and aren't cached.
+	 */
 	@CrossOrigin(origins = corsOrigin)
 	@GetMapping("/solve")
-	public List<Move> solveRubiksDecoder(@RequestParam(value = "rows") char[][] rows) {
-		return new Solver().solveRubiksDecoder(rows);
+	public ResponseEntity<List<Move>> solveRubiksDecoder(@RequestParam(value = "rows") char[][] rows,
+			@RequestParam(value = "numRows", defaultValue = "3") int numRows,
+			@RequestParam(value = "numCols", defaultValue = "6") int numCols,
+			@RequestParam(value = "session", required = false) String sessionId,
+			@RequestParam(value = "strategy", required = false) SearchStrategy requestStrategy,
+			@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+		DecoderDimensions dimensions = new DecoderDimensions(numRows, numCols);
+		SearchStrategy strategy = requestStrategy != null ? requestStrategy : searchStrategy;
+		if (strategy != searchStrategy && strategy != SearchStrategy.TWO_PHASE) {
+			throw new InvalidConfigurationException(Collections.singletonList(
+					String.format(UNSUPPORTED_STRATEGY, searchStrategy, SearchStrategy.TWO_PHASE)));
+		}
+		Solver solver = new Solver(dimensions, strategy);
+		solver.validate(rows);
+		String canonicalBoard = CanonicalBoard.canonicalize(rows);
+		if (sessionId != null) {
+			return ResponseEntity.ok().cacheControl(CacheControl.noStore())
+					.body(solve(rows, solver, strategy, canonicalBoard, sessionId));
+		}
+		String eTag = getETag(strategy, canonicalBoard);
+		if (matchesETag(ifNoneMatch, eTag)) {
+			numNotModified.incrementAndGet();
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(SOLUTION_CACHE_CONTROL)
+					.build();
+		}
+		return ResponseEntity.ok().eTag(eTag).cacheControl(SOLUTION_CACHE_CONTROL)
+				.body(solve(rows, solver, strategy, canonicalBoard, null));
+	}
+	
+	/*
+	 * Next move of the session's solution for a board reached by following it. A
+	 * 204 No Content response means the board is solved.
+	 */
+	@CrossOrigin(origins = corsOrigin)
+	@GetMapping("/next")
+	public ResponseEntity<Move> getNextMove(@RequestParam(value = "rows") char[][] rows,
+			@RequestParam(value = "numRows", defaultValue = "3") int numRows,
+			@RequestParam(value = "numCols", defaultValue = "6") int numCols,
+			@RequestParam(value = "session") String sessionId) {
+		Solver solver = new Solver(new DecoderDimensions(numRows, numCols), searchStrategy);
+		solver.validate(rows);
+		List<Move> remainingMoves = solve(rows, solver, searchStrategy, CanonicalBoard.canonicalize(rows), sessionId);
+		return remainingMoves.isEmpty() ? ResponseEntity.noContent().build()
+				: ResponseEntity.ok(remainingMoves.get(0));
+	}
+	
+	/*
+	 * Replays a candidate solution without searching. The body holds the board's
+	 * "rows" and its "moves", in the form /solve returns them.
+	 */
+	@CrossOrigin(origins = corsOrigin)
+	@PostMapping("/verify")
+	public VerificationResult verifySolution(@RequestBody JsonNode body,
+			@RequestParam(value = "numRows", defaultValue = "3") int numRows,
+			@RequestParam(value = "numCols", defaultValue = "6") int numCols) {
+		DecoderDimensions dimensions = new DecoderDimensions(numRows, numCols);
+		JsonNode rowsNode = body.path("rows");
+		char[][] rows = new char[rowsNode.size()][];
+		for (int rowNum = 0; rowNum < rows.length; rowNum++) {
+			rows[rowNum] = rowsNode.get(rowNum).asText().toCharArray();
+		}
+		List<Move> moves = new ArrayList<>();
+		for (JsonNode moveNode : body.path("moves")) {
+			moves.add(parseMove(moveNode));
+		}
+		return SolutionVerifier.verify(rows, dimensions, moves);
+	}
+	
+	@CrossOrigin(origins = corsOrigin)
+	@GetMapping("/stats")
+	public Map<String, Number> getStats() {
+		Map<String, Number> stats = new LinkedHashMap<>();
+		stats.put("storeHits", numStoreHits.get());
+		stats.put("sessionHits", numSessionHits.get());
+		stats.put("notModified", numNotModified.get());
+		stats.put("sessions", solveSessions.size());
+		stats.put("solveRequests", solveCoalescer.getNumRequests());
+		stats.put("searches", solveCoalescer.getNumSearches());
+		stats.put("coalescedRequests", solveCoalescer.getNumCoalesced());
+		stats.put("coalescingRatio", solveCoalescer.getCoalescingRatio());
+		for (boolean hard : new boolean[] { false, true }) {
+			String lane = hard ? "hardLane." : "easyLane.";
+			stats.put(lane + "running", solveScheduler.getNumRunning(hard));
+			stats.put(lane + "waiting", solveScheduler.getNumWaiting(hard));
+			stats.put(lane + "admitted", solveScheduler.getNumAdmitted(hard));
+			stats.put(lane + "waitMillis", solveScheduler.getWaitMillis(hard));
+		}
+		HeuristicMemo heuristicMemo = HeuristicMemo.forDimensions(DecoderDimensions.STANDARD);
+		stats.put("heuristicMemoHits", heuristicMemo.getHits());
+		stats.put("heuristicMemoMisses", heuristicMemo.getMisses());
+		stats.put("heuristicMemoEvictions", heuristicMemo.getEvictions());
+		Solver.getPortfolioWins().forEach((strategy, numWins) -> stats.put("portfolioWins." + strategy, numWins));
+		return stats;
 	}
 	
 	@CrossOrigin(origins = corsOrigin)
@@ -32,4 +225,177 @@ public class SolverAPI {
 	public String getRandomConfiguration() {
 		return "Hello!";
 	}
+	
+	/*
+	 * Assumes the board has been validated
+	 */
+	private List<Move> solve(char[][] rows, Solver solver, SearchStrategy strategy, String canonicalBoard,
+			String sessionId) {
+		SolveSession session = sessionId == null ? null : getSolveSession(sessionId, solver.getDimensions());
+		if (session != null) {
+			List<Move> remainingMoves = session.getRemainingMoves(rows);
+			if (remainingMoves != null) {
+				numSessionHits.incrementAndGet();
+				return remainingMoves;
+			}
+		}
+		List<Move> solution = strategy == searchStrategy ? getStoredSolution(canonicalBoard) : null;
+		if (solution != null) {
+			numStoreHits.incrementAndGet();
+		} else {
+			/*
+			 * The canonical board is searched rather than the one asked about, so that
+			 * the solution depends only on the canonical form, like the ETag, the
+			 * coalescing key and the store key. It solves the asked-about board too.
+			 */
+			char[][] canonicalRows = CanonicalBoard.toStateArray(canonicalBoard);
+			solution = solveCoalescer.solve(strategy + " " + canonicalBoard, () -> {
+				List<Move> newSolution = solveScheduler.run(getSchedulingDifficulty(solver, canonicalRows),
+						() -> solver.solveRubiksDecoder(canonicalRows, timeLimitMillis));
+				recordIfSlow(canonicalRows, strategy, solver.getLastSolveStats(), newSolution.size());
+				if (strategy == searchStrategy) {
+					storeSolution(canonicalBoard, newSolution);
+				}
+				return newSolution;
+			});
+		}
+		if (session != null) {
+			session.setSolution(rows, solution);
+		}
+		return solution;
+	}
+	
+	/*
+	 * Strong, since a board's solution is the same whoever asks for it, until a
+	 * new solver version. PORTFOLIO's is weak, since which search wins the race
+	 * can change the solution.
+	 */
+	static String getETag(SearchStrategy strategy, String canonicalBoard) {
+		String eTag = String.format("\"%d-%s-%016x\"", Solver.VERSION, strategy,
+				CanonicalBoard.hash(canonicalBoard));
+		return strategy == SearchStrategy.PORTFOLIO ? "W/" + eTag : eTag;
+	}
+	
+	/*
+	 * Weak comparison, as If-None-Match uses
+	 */
+	static boolean matchesETag(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		String opaqueTag = getOpaqueTag(eTag);
+		for (String requestETag : ifNoneMatch.split(",")) {
+			requestETag = getOpaqueTag(requestETag.trim());
+			if (requestETag.equals("*") || requestETag.equals(opaqueTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static String getOpaqueTag(String eTag) {
+		return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+	}
+	
+	/*
+	 * A session is restarted if its boards change size
+	 */
+	private SolveSession getSolveSession(String sessionId, DecoderDimensions dimensions) {
+		ConcurrentMap<String, SolveSession> sessions = solveSessions.asMap();
+		while (true) {
+			SolveSession session = sessions.get(sessionId);
+			if (session != null && session.getDimensions().equals(dimensions)) {
+				return session;
+			}
+			// Built outside the cache's locks, so other sessions aren't held up
+			SolveSession newSession = new SolveSession(dimensions, searchStrategy);
+			if (session == null ? sessions.putIfAbsent(sessionId, newSession) == null
+					: sessions.replace(sessionId, session, newSession)) {
+				return newSession;
+			}
+		}
+	}
+	
+	/*
+	 * The store only saves work, so its failures are logged and the request is
+	 * solved as if the board wasn't stored.
+	 */
+	
+	private static SolutionStore openSolutionStore(String storePath) {
+		try {
+			SolutionStore solutionStore = new SolutionStore(Paths.get(storePath));
+			if (solutionStore.needsCompaction()) {
+				solutionStore.compact();
+			}
+			return solutionStore;
+		} catch (IOException e) {
+			log.warn("Running without solution store {}", storePath, e);
+			return null;
+		}
+	}
+	
+	private List<Move> getStoredSolution(String canonicalBoard) {
+		if (solutionStore == null) {
+			return null;
+		}
+		try {
+			return solutionStore.get(canonicalBoard);
+		} catch (IOException e) {
+			log.warn("Could not read solution store", e);
+			return null;
+		}
+	}
+	
+	/*
+	 * A named move's row may be left out
+	 */
+	private static Move parseMove(JsonNode moveNode) {
+		try {
+			MoveType moveType = MoveType.valueOf(moveNode.path("moveType").asText());
+			int row = moveNode.path("row").asInt(moveType.getNamedRow());
+			if (MoveType.rotateMoves.contains(moveType)) {
+				return new RotateMove(moveType, moveNode.path("rotateAmount").asInt(1), row);
+			}
+			return new SlideMove(moveType, row);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidConfigurationException(Collections.singletonList("Invalid move " + moveNode));
+		}
+	}
+	
+	/*
+	 * On standard boards the estimate tracks solve time. On bigger ones it
+	 * doesn't: full scrambles of 3x8 and 4x6 boards took tens of seconds whatever
+	 * their estimate, so any of them the endgame table can't solve is hard.
+	 */
+	float getSchedulingDifficulty(Solver solver, char[][] stateArray) {
+		float difficulty = solver.estimateDifficulty(stateArray);
+		if (difficulty == 0 || solver.getDimensions().isStandard()) {
+			return difficulty;
+		}
+		return Math.max(difficulty, hardDifficulty);
+	}
+	
+	private void recordIfSlow(char[][] rows, SearchStrategy strategy, SolveStats solveStats, int numMoves) {
+		if (slowSolveLog == null || solveStats.getElapsedMillis() < slowSolveMillis
+				&& solveStats.getNodesExpanded() < slowSolveNodes) {
+			return;
+		}
+		log.info("Slow solve: {} ms, {} nodes", solveStats.getElapsedMillis(), solveStats.getNodesExpanded());
+		try {
+			slowSolveLog.record(rows, strategy, solveStats, numMoves);
+		} catch (IOException e) {
+			log.warn("Could not write slow-solve log", e);
+		}
+	}
+	
+	private void storeSolution(String canonicalBoard, List<Move> solution) {
+		if (solutionStore == null) {
+			return;
+		}
+		try {
+			solutionStore.put(canonicalBoard, solution);
+		} catch (IOException e) {
+			log.warn("Could not write solution store", e);
+		}
+	}
 }
@@ -0,0 +1,37 @@
+package solver;
+
+/*
+ * Outcome of replaying a candidate solution with SolutionVerifier
+ */
+public final class VerificationResult {
+
+	public static final String ILLEGAL_MOVE = "Move %d can't be made: %s";
+
+	private final boolean solved;
+	private final int numMovesApplied;
+	private final String error;
+
+	VerificationResult(boolean solved, int numMovesApplied, String error) {
+		this.solved = solved;
+		this.numMovesApplied = numMovesApplied;
+		this.error = error;
+	}
+
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/*
+	 * Moves made before the first one that couldn't be, or all of them
+	 */
+	public int getNumMovesApplied() {
+		return numMovesApplied;
+	}
+
+	/*
+	 * Null unless a move couldn't be made
+	 */
+	public String getError() {
+		return error;
+	}
+}
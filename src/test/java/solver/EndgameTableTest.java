@@ -0,0 +1,76 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import moves.Move;
+
+public class EndgameTableTest {
+	
+	private static final long SMALL_MEMORY_BUDGET = 1024 * 1024;
+	
+	@Test
+	void getSolution_scrambledBoards() {
+		EndgameTable endgameTable = EndgameTable.build(DecoderDimensions.STANDARD, SMALL_MEMORY_BUDGET);
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			char[][] stateArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD,
+					random.nextInt(endgameTable.getDepth() + 1), random);
+			List<Move> solution = endgameTable.getSolution(stateArray);
+			assertEquals(endgameTable.getDistance(stateArray), solution.size());
+			for (Move move : solution) {
+				Solver.applyMove(stateArray, move);
+			}
+			assertEquals(true, Solver.isSolution(stateArray));
+		}
+	}
+	
+	@Test
+	void build_depthLimitedByMemory() {
+		EndgameTable smallTable = EndgameTable.build(DecoderDimensions.STANDARD, SMALL_MEMORY_BUDGET);
+		EndgameTable largeTable = EndgameTable.build(DecoderDimensions.STANDARD, 8 * SMALL_MEMORY_BUDGET);
+		assertEquals(true, smallTable.getMemoryUsage() <= SMALL_MEMORY_BUDGET);
+		assertEquals(true, smallTable.getDepth() < largeTable.getDepth());
+		char[][] stateArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(2));
+		if (largeTable.getDistance(stateArray) > smallTable.getDepth()) {
+			assertEquals(-1, smallTable.getDistance(stateArray));
+		}
+	}
+	
+	@Test
+	void canonicalKey_symmetricBoards() {
+		char[][] inputArray = {
+				{'-', 'y', 'y', 'g', 'w', 'g'},
+				{'r', 'w', 'y', 'b', 'b', 'b'},
+				{'r', 'o', 'g', 'o', 'o', 'r'}
+		};
+		char[][] symmetricArray = {
+				{'y', 'g', 'w', 'g', '-', 'y'},
+				{'y', 'o', 'o', 'o', 'r', 'w'},
+				{'g', 'b', 'b', 'r', 'r', 'b'}
+		};
+		assertEquals(CanonicalBoard.canonicalKey(inputArray), CanonicalBoard.canonicalKey(symmetricArray));
+	}
+	
+	/*
+	 * The table can only replace the end of a solution with a shorter one
+	 */
+	@Test
+	void solveRubiksDecoder_neverLongerWithTable() {
+		Solver solverWithoutTable = new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR,
+				EndgameTable.build(DecoderDimensions.STANDARD, 0));
+		Solver solverWithTable = new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR,
+				EndgameTable.build(DecoderDimensions.STANDARD, SMALL_MEMORY_BUDGET));
+		Random random = new Random(3);
+		for (int i = 0; i < 5; i++) {
+			char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 20, random);
+			int movesWithTable = solverWithTable.solveRubiksDecoder(inputArray).size();
+			int movesWithoutTable = solverWithoutTable.solveRubiksDecoder(inputArray).size();
+			assertEquals(true, movesWithTable <= movesWithoutTable);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import moves.Move;
+
+public class HeuristicMemoTest {
+	
+	@Test
+	void get_afterPut() {
+		HeuristicMemo memo = new HeuristicMemo(1024 * 1024);
+		PackedState packedState = PackedState.pack(DecoderDimensions.STANDARD.createSolvedStateArray());
+		assertEquals(-1, memo.get(packedState));
+		memo.put(packedState, 12);
+		assertEquals(12, memo.get(packedState));
+		assertEquals(1, memo.getHits());
+		assertEquals(1, memo.getMisses());
+	}
+	
+	/*
+	 * A full memo replaces entries instead of growing
+	 */
+	@Test
+	void put_evictsPastCapacity() {
+		HeuristicMemo memo = new HeuristicMemo(64 * 1024);
+		Random random = new Random(0);
+		Set<PackedState> packedStates = new HashSet<>();
+		for (int i = 0; i < 4 * memo.getCapacity(); i++) {
+			char[][] stateArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 20, random);
+			PackedState packedState = PackedState.pack(stateArray);
+			memo.put(packedState, i);
+			packedStates.add(packedState);
+		}
+		int numStored = 0;
+		for (PackedState packedState : packedStates) {
+			if (memo.get(packedState) >= 0) {
+				numStored++;
+			}
+		}
+		assertEquals(true, numStored <= memo.getCapacity());
+		assertEquals(true, memo.getEvictions() > 0);
+	}
+	
+	/*
+	 * Solvers sharing a memo get the same solutions as solvers with their own
+	 */
+	@Test
+	void solveRubiksDecoder_sharedBetweenThreads() throws Exception {
+		HeuristicMemo sharedMemo = new HeuristicMemo(HeuristicMemo.DEFAULT_MEMORY_BUDGET);
+		EndgameTable endgameTable = EndgameTable.forDimensions(DecoderDimensions.STANDARD);
+		Random random = new Random(3);
+		List<char[][]> inputArrays = new ArrayList<>();
+		List<List<Move>> expectedSolutions = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, random);
+			inputArrays.add(inputArray);
+			expectedSolutions.add(new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR, endgameTable,
+					new HeuristicMemo(HeuristicMemo.DEFAULT_MEMORY_BUDGET)).solveRubiksDecoder(inputArray));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<Move>>> solutions = new ArrayList<>();
+			for (int i = 0; i < 2 * inputArrays.size(); i++) {
+				char[][] inputArray = inputArrays.get(i % inputArrays.size());
+				solutions.add(executor.submit(() -> new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR,
+						endgameTable, sharedMemo).solveRubiksDecoder(inputArray)));
+			}
+			for (int i = 0; i < solutions.size(); i++) {
+				assertEquals(expectedSolutions.get(i % inputArrays.size()), solutions.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(true, sharedMemo.getHits() > 0);
+	}
+}
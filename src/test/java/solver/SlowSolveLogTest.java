@@ -0,0 +1,58 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class SlowSolveLogTest {
+	
+	private static final char[][] BOARD = {
+			{'-', 'y', 'y', 'g', 'w', 'g'},
+			{'r', 'w', 'y', 'b', 'b', 'b'},
+			{'r', 'o', 'g', 'o', 'o', 'r'}
+	};
+	
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void readAll_afterRecord() throws IOException {
+		SlowSolveLog slowSolveLog = new SlowSolveLog(tempDir.resolve("slow-solves.jsonl"));
+		slowSolveLog.record(BOARD, SearchStrategy.A_STAR, new SolveStats(2_500_000_000L, 300_000, 900_000, 700_000),
+				20);
+		List<JsonNode> records = slowSolveLog.readAll();
+		assertEquals(1, records.size());
+		assertEquals("rwybbb", records.get(0).get("rows").get(1).asText());
+		assertEquals(2500, records.get(0).get("elapsedMs").asLong());
+		assertEquals(300_000, records.get(0).get("nodesExpanded").asLong());
+		assertEquals(700_000L * SolveStats.BYTES_PER_STORED_STATE, records.get(0).get("peakMemoryEstimate").asLong());
+		assertEquals("A_STAR", records.get(0).get("strategy").asText());
+	}
+	
+	/*
+	 * Only the newest files are kept once the log rolls over
+	 */
+	@Test
+	void record_rollsOverAtMaxBytes() throws IOException {
+		Path path = tempDir.resolve("slow-solves.jsonl");
+		SlowSolveLog slowSolveLog = new SlowSolveLog(path, 1000, 3);
+		for (int i = 0; i < 50; i++) {
+			slowSolveLog.record(BOARD, SearchStrategy.A_STAR, new SolveStats(i * 1_000_000L, i, i, i), i);
+		}
+		assertEquals(true, Files.exists(tempDir.resolve("slow-solves.jsonl.2")));
+		assertEquals(false, Files.exists(tempDir.resolve("slow-solves.jsonl.3")));
+		List<JsonNode> records = slowSolveLog.readAll();
+		assertEquals(true, records.size() < 50);
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(50 - records.size() + i, records.get(i).get("numMoves").asInt());
+		}
+	}
+}
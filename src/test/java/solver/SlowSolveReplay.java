@@ -0,0 +1,60 @@
+package solver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import moves.Move;
+
+/*
+ * Solves every board in a slow-solve log again with the current build and
+ * prints what each cost when it was captured next to what it costs now. Each
+ * board is replayed with the strategy it was captured with unless a strategy
+ * is given.
+ *
+ * Usage: SlowSolveReplay [log path] [strategy]
+ */
+public class SlowSolveReplay {
+
+	public static void main(String[] args) throws IOException {
+		String logPath = args.length > 0 ? args[0] : "slow-solves.jsonl";
+		SearchStrategy strategyOverride = args.length > 1 ? SearchStrategy.valueOf(args[1]) : null;
+		List<JsonNode> records = new SlowSolveLog(Paths.get(logPath)).readAll();
+		long totalCapturedMillis = 0;
+		long totalMillis = 0;
+		int numFaster = 0;
+		int numShorter = 0;
+		int numLonger = 0;
+		for (JsonNode record : records) {
+			JsonNode rowsNode = record.get("rows");
+			List<String> rows = new ArrayList<>();
+			rowsNode.forEach(rowNode -> rows.add(rowNode.asText()));
+			char[][] inputArray = new char[rows.size()][];
+			for (int rowNum = 0; rowNum < rows.size(); rowNum++) {
+				inputArray[rowNum] = rows.get(rowNum).toCharArray();
+			}
+			String board = String.join("/", rows);
+			SearchStrategy searchStrategy = strategyOverride != null ? strategyOverride
+					: SearchStrategy.valueOf(record.path("strategy").asText(SearchStrategy.A_STAR.name()));
+			DecoderDimensions dimensions = new DecoderDimensions(inputArray.length, inputArray[0].length);
+			Solver solver = new Solver(dimensions, searchStrategy);
+			List<Move> solutionPath = solver.solveRubiksDecoder(inputArray);
+			SolveStats solveStats = solver.getLastSolveStats();
+			long capturedMillis = record.path("elapsedMs").asLong();
+			int capturedMoves = record.path("numMoves").asInt();
+			totalCapturedMillis += capturedMillis;
+			totalMillis += solveStats.getElapsedMillis();
+			numFaster += solveStats.getElapsedMillis() < capturedMillis ? 1 : 0;
+			numShorter += solutionPath.size() < capturedMoves ? 1 : 0;
+			numLonger += solutionPath.size() > capturedMoves ? 1 : 0;
+			System.out.println(String.format("%-30s %-15s %8d ms -> %8d ms, %10d -> %10d nodes, %3d -> %3d moves", board,
+					searchStrategy, capturedMillis, solveStats.getElapsedMillis(), record.path("nodesExpanded").asLong(),
+					solveStats.getNodesExpanded(), capturedMoves, solutionPath.size()));
+		}
+		System.out.println(String.format("%d boards, %d ms -> %d ms, %d faster, %d shorter, %d longer", records.size(),
+				totalCapturedMillis, totalMillis, numFaster, numShorter, numLonger));
+	}
+}
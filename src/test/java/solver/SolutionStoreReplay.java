@@ -0,0 +1,47 @@
+package solver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import moves.Move;
+
+/*
+ * Re-solves every board in a solution store with the current build and reports
+ * timings and any boards whose solution changed, so that a store copied from
+ * production can be used as a benchmark and regression corpus.
+ *
+ * Usage: SolutionStoreReplay <store path>
+ */
+public class SolutionStoreReplay {
+
+	public static void main(String[] args) throws IOException {
+		long totalTime = 0;
+		int numChanged = 0;
+		int numLonger = 0;
+		List<SolutionStore.StoredSolution> storedSolutions;
+		try (SolutionStore store = new SolutionStore(Paths.get(args[0]))) {
+			storedSolutions = store.readAll();
+		}
+		for (SolutionStore.StoredSolution storedSolution : storedSolutions) {
+			char[][] inputArray = CanonicalBoard.toStateArray(storedSolution.getCanonicalBoard());
+			DecoderDimensions dimensions = new DecoderDimensions(inputArray.length, inputArray[0].length);
+			long startTime = System.nanoTime();
+			List<Move> solutionPath = new Solver(dimensions).solveRubiksDecoder(inputArray);
+			totalTime += System.nanoTime() - startTime;
+			if (!solutionPath.equals(storedSolution.getMoves())) {
+				numChanged++;
+				if (solutionPath.size() > storedSolution.getMoves().size()) {
+					numLonger++;
+					System.out.println(String.format("Longer: %s (v%d %d moves, now %d)",
+							storedSolution.getCanonicalBoard(), storedSolution.getSolverVersion(),
+							storedSolution.getMoves().size(), solutionPath.size()));
+				}
+			}
+		}
+		int numBoards = storedSolutions.size();
+		System.out.println("Boards = " + numBoards);
+		System.out.println("Average time = " + totalTime / (double) Math.max(numBoards, 1) / 1e9 + " seconds");
+		System.out.println("Changed solutions = " + numChanged + ", longer = " + numLonger);
+	}
+}
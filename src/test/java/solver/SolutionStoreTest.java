@@ -0,0 +1,138 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+import moves.SlideMove;
+
+public class SolutionStoreTest {
+	
+	private static final String BOARD = "-yygwg/rwybbb/roggor";
+	private static final List<Move> MOVES = Arrays.asList(new RotateMove(MoveType.TL, 2), new SlideMove(MoveType.MU),
+			new RotateMove(MoveType.RR, 3, 3));
+	
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void get_afterReopen() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store = new SolutionStore(path)) {
+			store.put(BOARD, MOVES);
+			store.put("r-r/ryy/yyr", Collections.emptyList());
+		}
+		try (SolutionStore store = new SolutionStore(path)) {
+			assertEquals(MOVES, store.get(BOARD));
+			assertEquals(Collections.emptyList(), store.get("r-r/ryy/yyr"));
+			assertEquals(null, store.get("-yygwg/rwybbb/roggro"));
+			assertEquals(2, store.size());
+		}
+	}
+	
+	@Test
+	void get_sharedBetweenInstances() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store1 = new SolutionStore(path); SolutionStore store2 = new SolutionStore(path)) {
+			store1.put(BOARD, MOVES);
+			assertEquals(MOVES, store2.get(BOARD));
+		}
+	}
+	
+	@Test
+	void open_truncatesTornRecord() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store = new SolutionStore(path)) {
+			store.put(BOARD, MOVES);
+			store.put("r-r/ryy/yyr", Collections.emptyList());
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		try (SolutionStore store = new SolutionStore(path)) {
+			assertEquals(MOVES, store.get(BOARD));
+			assertEquals(null, store.get("r-r/ryy/yyr"));
+			store.put("r-r/ryy/yyr", MOVES);
+			assertEquals(MOVES, store.get("r-r/ryy/yyr"));
+		}
+	}
+	
+	@Test
+	void compact_keepsEveryBoard() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store = new SolutionStore(path)) {
+			store.put(BOARD, MOVES);
+			store.put("r-r/ryy/yyr", Collections.emptyList());
+			store.compact();
+			assertEquals(MOVES, store.get(BOARD));
+			assertEquals(2, store.readAll().size());
+		}
+	}
+	
+	/*
+	 * A put after another store replaced the file goes to the new file, not the
+	 * unlinked old one
+	 */
+	@Test
+	void put_afterOtherStoreCompacted() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store1 = new SolutionStore(path); SolutionStore store2 = new SolutionStore(path)) {
+			store1.put(BOARD, MOVES);
+			store2.compact();
+			store1.put("r-r/ryy/yyr", MOVES);
+		}
+		try (SolutionStore store = new SolutionStore(path)) {
+			assertEquals(MOVES, store.get(BOARD));
+			assertEquals(MOVES, store.get("r-r/ryy/yyr"));
+		}
+	}
+	
+	/*
+	 * A full log fails like any other store I/O, and a log too large to map can't
+	 * be opened
+	 */
+	@Test
+	void put_fullLog() throws IOException {
+		Path path = tempDir.resolve("solutions.log");
+		try (SolutionStore store = new SolutionStore(path, 100)) {
+			store.put(BOARD, MOVES);
+			assertThrows(IOException.class, () -> store.put("r-r/ryy/yyr", MOVES));
+			assertEquals(MOVES, store.get(BOARD));
+			assertEquals(null, store.get("r-r/ryy/yyr"));
+		}
+		assertThrows(IOException.class, () -> new SolutionStore(path, 50));
+	}
+	
+	/*
+	 * Rotating the whole decoder and swapping colours gives the same canonical
+	 * board and the same solution
+	 */
+	@Test
+	void canonicalize_symmetricBoards() {
+		char[][] inputArray = {
+				{'-', 'y', 'y', 'g', 'w', 'g'},
+				{'r', 'w', 'y', 'b', 'b', 'b'},
+				{'r', 'o', 'g', 'o', 'o', 'r'}
+		};
+		char[][] symmetricArray = {
+				{'y', 'g', 'w', 'g', '-', 'y'},
+				{'y', 'o', 'o', 'o', 'r', 'w'},
+				{'g', 'b', 'b', 'r', 'r', 'b'}
+		};
+		assertEquals(CanonicalBoard.canonicalize(inputArray), CanonicalBoard.canonicalize(symmetricArray));
+		assertEquals(new Solver().solveRubiksDecoder(inputArray), new Solver().solveRubiksDecoder(symmetricArray));
+	}
+}
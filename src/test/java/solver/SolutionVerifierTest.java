@@ -0,0 +1,86 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import moves.Move;
+import moves.MoveEngine;
+import moves.MoveType;
+import moves.RotateMove;
+import moves.SlideMove;
+
+public class SolutionVerifierTest {
+
+	/*
+	 * The composed permutation of a random sequence of legal moves gives the same
+	 * board as making the moves one at a time
+	 */
+	@Test
+	void compose_matchesApplyMove() {
+		DecoderDimensions dimensions = new DecoderDimensions(4, 7);
+		MoveEngine moveEngine = SolutionVerifier.getMoveEngine(dimensions);
+		Solver solver = new Solver(dimensions);
+		Random random = new Random(0);
+		char[][] stateArray = SolverBenchmark.generateScrambledInput(dimensions, 20, random);
+		char[] cells = flatten(stateArray);
+		List<Move> moves = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			List<Move> legalMoves = solver.getLegalMoves(stateArray);
+			Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+			if (move instanceof RotateMove) {
+				move = new RotateMove(move.getMoveType(), 1 + random.nextInt(dimensions.getNumCols()), move.getRow());
+			}
+			Solver.applyMove(stateArray, move);
+			moves.add(move);
+		}
+		int[] permutation = moveEngine.compose(moves, new String(cells).indexOf('-'));
+		assertEquals(true, Arrays.equals(flatten(stateArray), MoveEngine.apply(permutation, cells)));
+	}
+
+	@Test
+	void verify_solverSolution() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 20, new Random(1));
+		List<Move> moves = new Solver().solveRubiksDecoder(inputArray);
+		VerificationResult result = SolutionVerifier.verify(inputArray, DecoderDimensions.STANDARD, moves);
+		assertEquals(true, result.isSolved());
+		assertEquals(moves.size(), result.getNumMovesApplied());
+		assertEquals(null, result.getError());
+	}
+
+	@Test
+	void verify_unsolved() {
+		char[][] inputArray = DecoderDimensions.STANDARD.createSolvedStateArray();
+		VerificationResult result = SolutionVerifier.verify(inputArray, DecoderDimensions.STANDARD,
+				Arrays.asList(new RotateMove(MoveType.TL, 1)));
+		assertEquals(false, result.isSolved());
+		assertEquals(null, result.getError());
+	}
+
+	/*
+	 * The blank starts in the top row, so the middle row can only slide up into it
+	 * once
+	 */
+	@Test
+	void verify_illegalSlide() {
+		char[][] inputArray = DecoderDimensions.STANDARD.createSolvedStateArray();
+		VerificationResult result = SolutionVerifier.verify(inputArray, DecoderDimensions.STANDARD,
+				Arrays.asList(new SlideMove(MoveType.MU), new SlideMove(MoveType.MU)));
+		assertEquals(false, result.isSolved());
+		assertEquals(1, result.getNumMovesApplied());
+		assertEquals(String.format(VerificationResult.ILLEGAL_MOVE, 2, "Middle row, slide up"), result.getError());
+	}
+
+	private static char[] flatten(char[][] stateArray) {
+		StringBuilder cells = new StringBuilder();
+		for (char[] row : stateArray) {
+			cells.append(row);
+		}
+		return cells.toString().toCharArray();
+	}
+}
@@ -0,0 +1,58 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import moves.Move;
+import moves.MoveType;
+import moves.SlideMove;
+
+public class SolveCoalescerTest {
+	
+	private static final int NUM_REQUESTS = 8;
+	private static final List<Move> MOVES = Arrays.asList(new SlideMove(MoveType.MU));
+	
+	@Test
+	void solve_concurrentIdenticalBoards() throws Exception {
+		SolveCoalescer solveCoalescer = new SolveCoalescer();
+		AtomicInteger numSearches = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_REQUESTS);
+		try {
+			List<Future<List<Move>>> results = new ArrayList<>();
+			for (int i = 0; i < NUM_REQUESTS; i++) {
+				results.add(executor.submit(() -> solveCoalescer.solve("board", () -> {
+					numSearches.incrementAndGet();
+					while (solveCoalescer.getNumCoalesced() < NUM_REQUESTS - 1) {
+						Thread.yield(); // Hold the search open until every request has arrived
+					}
+					return MOVES;
+				})));
+			}
+			for (Future<List<Move>> result : results) {
+				assertEquals(MOVES, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, numSearches.get());
+		assertEquals(1, solveCoalescer.getNumSearches());
+		assertEquals((NUM_REQUESTS - 1) / (double) NUM_REQUESTS, solveCoalescer.getCoalescingRatio());
+	}
+	
+	@Test
+	void solve_sequentialBoardsSearchAgain() {
+		SolveCoalescer solveCoalescer = new SolveCoalescer();
+		solveCoalescer.solve("board", () -> MOVES);
+		solveCoalescer.solve("board", () -> MOVES);
+		assertEquals(2, solveCoalescer.getNumSearches());
+	}
+}
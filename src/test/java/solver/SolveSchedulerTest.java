@@ -0,0 +1,104 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class SolveSchedulerTest {
+
+	private static final float HARD_DIFFICULTY = 20;
+	private static final long NO_AGING_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	/*
+	 * A full hard lane doesn't hold up easy searches
+	 */
+	@Test
+	void run_easyNotBlockedByHard() throws Exception {
+		SolveScheduler solveScheduler = new SolveScheduler(HARD_DIFFICULTY, 1, 1, NO_AGING_MILLIS);
+		CountDownLatch hardSearchHeld = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 2; i++) {
+				executor.submit(() -> solveScheduler.run(30, () -> await(hardSearchHeld)));
+			}
+			waitForWaiting(solveScheduler, true, 1);
+			assertEquals(1, solveScheduler.getNumRunning(true));
+			assertEquals("easy", solveScheduler.run(5, () -> "easy"));
+			assertEquals(1, solveScheduler.getNumAdmitted(false));
+		} finally {
+			hardSearchHeld.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void run_easiestWaitingFirst() throws Exception {
+		SolveScheduler solveScheduler = new SolveScheduler(HARD_DIFFICULTY, 1, 1, NO_AGING_MILLIS);
+		assertEquals(Arrays.asList(2f, 5f, 9f), getAdmissionOrder(solveScheduler, Arrays.asList(9f, 2f, 5f), 0));
+	}
+
+	/*
+	 * After waiting long enough, a harder search goes ahead of an easier one that
+	 * arrived later
+	 */
+	@Test
+	void run_agingPreventsStarvation() throws Exception {
+		SolveScheduler solveScheduler = new SolveScheduler(HARD_DIFFICULTY, 1, 1, 1);
+		assertEquals(Arrays.asList(19f, 2f), getAdmissionOrder(solveScheduler, Arrays.asList(19f, 2f), 50));
+	}
+
+	/*
+	 * Holds the easy lane with one search while the given searches queue up, one
+	 * every gapMillis, then releases it
+	 */
+	private static List<Float> getAdmissionOrder(SolveScheduler solveScheduler, List<Float> difficulties,
+			long gapMillis) throws Exception {
+		CountDownLatch firstSearchHeld = new CountDownLatch(1);
+		List<Float> admissionOrder = Collections.synchronizedList(new ArrayList<>());
+		ExecutorService executor = Executors.newFixedThreadPool(difficulties.size() + 1);
+		try {
+			executor.submit(() -> solveScheduler.run(0, () -> await(firstSearchHeld)));
+			while (solveScheduler.getNumRunning(false) == 0) {
+				Thread.yield();
+			}
+			List<Future<?>> searches = new ArrayList<>();
+			for (int i = 0; i < difficulties.size(); i++) {
+				float difficulty = difficulties.get(i);
+				searches.add(executor.submit(() -> solveScheduler.run(difficulty, () -> admissionOrder.add(difficulty))));
+				waitForWaiting(solveScheduler, false, i + 1);
+				Thread.sleep(gapMillis);
+			}
+			firstSearchHeld.countDown();
+			for (Future<?> search : searches) {
+				search.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return admissionOrder;
+	}
+
+	private static void waitForWaiting(SolveScheduler solveScheduler, boolean hard, int numWaiting) {
+		while (solveScheduler.getNumWaiting(hard) < numWaiting) {
+			Thread.yield();
+		}
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
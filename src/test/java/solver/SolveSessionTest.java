@@ -0,0 +1,82 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import moves.Move;
+import moves.MoveType;
+import moves.RotateMove;
+
+public class SolveSessionTest {
+	
+	private static final char[][] INPUT_ARRAY = {
+			{'-', 'y', 'y', 'g', 'w', 'g'},
+			{'r', 'w', 'y', 'b', 'b', 'b'},
+			{'r', 'o', 'g', 'o', 'o', 'r'}
+	};
+	
+	@Test
+	void getRemainingMoves_followingSolution() {
+		SolveSession session = new SolveSession(DecoderDimensions.STANDARD);
+		List<Move> solution = session.solve(copy(INPUT_ARRAY));
+		char[][] stateArray = copy(INPUT_ARRAY);
+		for (int step = 0; step <= solution.size(); step++) {
+			assertEquals(solution.subList(step, solution.size()), session.getRemainingMoves(stateArray));
+			if (step < solution.size()) {
+				Solver.applyMove(stateArray, solution.get(step));
+			}
+		}
+	}
+	
+	@Test
+	void getRemainingMoves_oneMoveOff() {
+		SolveSession session = new SolveSession(DecoderDimensions.STANDARD);
+		List<Move> solution = session.solve(copy(INPUT_ARRAY));
+		char[][] stateArray = copy(INPUT_ARRAY);
+		Solver.applyMove(stateArray, new RotateMove(MoveType.BL, 1));
+		List<Move> remainingMoves = session.getRemainingMoves(stateArray);
+		assertEquals(true, remainingMoves.size() <= solution.size() + 1);
+		for (Move move : remainingMoves) {
+			Solver.applyMove(stateArray, move);
+		}
+		assertEquals(true, Solver.isSolution(stateArray));
+	}
+	
+	/*
+	 * Solutions too long to follow within the session's memory bound are forgotten
+	 */
+	@Test
+	void getRemainingMoves_solutionTooLong() {
+		SolveSession session = new SolveSession(DecoderDimensions.STANDARD);
+		List<Move> solution = new ArrayList<>();
+		for (int i = 0; i <= SolveSession.MAX_FOLLOWED_MOVES; i++) {
+			solution.add(new RotateMove(i % 2 == 0 ? MoveType.TL : MoveType.BL, 1));
+		}
+		session.setSolution(copy(INPUT_ARRAY), solution);
+		assertEquals(null, session.getRemainingMoves(copy(INPUT_ARRAY)));
+	}
+	
+	@Test
+	void getRemainingMoves_otherBoard() {
+		SolveSession session = new SolveSession(DecoderDimensions.STANDARD);
+		session.solve(copy(INPUT_ARRAY));
+		char[][] correctedArray = copy(INPUT_ARRAY);
+		correctedArray[1][0] = 'o';
+		correctedArray[2][1] = 'r';
+		assertEquals(null, session.getRemainingMoves(correctedArray));
+		List<Move> solution = session.solve(correctedArray);
+		assertEquals(solution, session.getRemainingMoves(correctedArray));
+	}
+	
+	private static char[][] copy(char[][] stateArray) {
+		char[][] stateArrayCopy = new char[stateArray.length][];
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			stateArrayCopy[rowNum] = stateArray[rowNum].clone();
+		}
+		return stateArrayCopy;
+	}
+}
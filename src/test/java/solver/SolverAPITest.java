@@ -0,0 +1,266 @@
+package solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import moves.Move;
+
+public class SolverAPITest {
+	
+	private static final String SOLUTION_CACHE_CONTROL = "max-age=31536000, public";
+	private static final float HARD_DIFFICULTY = 20;
+	
+	@TempDir
+	Path tempDir;
+
+	/*
+	 * No solution store or slow-solve log, and the default schedule
+	 */
+	private static SolverAPI createSolverAPI(SearchStrategy searchStrategy) {
+		return createSolverAPI("", searchStrategy);
+	}
+	
+	private static SolverAPI createSolverAPI(String storePath, SearchStrategy searchStrategy) {
+		return new SolverAPI(storePath, searchStrategy, "", 2000, 200_000, HARD_DIFFICULTY, 4, 2, 100,
+				Solver.NO_TIME_LIMIT);
+	}
+	
+	/*
+	 * TWO_PHASE is quick however hard the board, so it doesn't wait behind full
+	 * searches in the hard lane
+	 */
+	@Test
+	void solveRubiksDecoder_twoPhaseInEasyLane() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		assertEquals(true, new Solver().estimateDifficulty(rows) >= HARD_DIFFICULTY);
+		solverAPI.solveRubiksDecoder(rows, 3, 6, null, SearchStrategy.TWO_PHASE, null);
+		assertEquals(1L, solverAPI.getStats().get("easyLane.admitted"));
+		assertEquals(0L, solverAPI.getStats().get("hardLane.admitted"));
+		solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, null);
+		assertEquals(1L, solverAPI.getStats().get("hardLane.admitted"));
+	}
+	
+	/*
+	 * Only bigger boards the endgame table solves are easy, whatever their estimate
+	 */
+	@Test
+	void getSchedulingDifficulty_largerBoard() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		DecoderDimensions dimensions = new DecoderDimensions(3, 8);
+		Solver solver = new Solver(dimensions);
+		char[][] scrambled = SolverBenchmark.generateScrambledInput(dimensions, 200, new Random(0));
+		assertEquals(true, solverAPI.getSchedulingDifficulty(solver, scrambled) >= HARD_DIFFICULTY);
+		char[][] nearlySolved = SolverBenchmark.generateScrambledInput(dimensions, 2, new Random(0));
+		assertEquals(0f, solverAPI.getSchedulingDifficulty(solver, nearlySolved));
+	}
+	
+	@Test
+	void solveRubiksDecoder_timeLimit() {
+		SolverAPI solverAPI = new SolverAPI("", SearchStrategy.A_STAR, "", 2000, 200_000, HARD_DIFFICULTY, 4, 2, 100,
+				1);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 200, new Random(200));
+		assertThrows(SolveTimeoutException.class, () -> solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, null));
+	}
+	
+	@Test
+	void solveRubiksDecoder_notModified() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 20, new Random(0));
+		String eTag = SolverAPI.getETag(SearchStrategy.A_STAR, CanonicalBoard.canonicalize(rows));
+		ResponseEntity<List<Move>> response = solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, null);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(eTag, response.getHeaders().getETag());
+		assertEquals(SOLUTION_CACHE_CONTROL, response.getHeaders().getCacheControl());
+		assertEquals(false, response.getBody().isEmpty());
+		
+		response = solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, "W/" + eTag);
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertEquals(eTag, response.getHeaders().getETag());
+		assertEquals(SOLUTION_CACHE_CONTROL, response.getHeaders().getCacheControl());
+		assertEquals(null, response.getBody());
+		assertEquals(1L, solverAPI.getStats().get("notModified"));
+	}
+	
+	/*
+	 * Solved directly, these boards get different solutions, so the API solves
+	 * their canonical form to give both the same body under their shared ETag
+	 */
+	@Test
+	void solveRubiksDecoder_sameBodyForEquivalentBoards() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 40, new Random(0));
+		char[][] equivalentRows = getEquivalentBoard(rows);
+		assertEquals(false, new Solver().solveRubiksDecoder(rows).equals(new Solver().solveRubiksDecoder(equivalentRows)));
+		ResponseEntity<List<Move>> response = solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, null);
+		ResponseEntity<List<Move>> equivalentResponse = solverAPI.solveRubiksDecoder(equivalentRows, 3, 6, null, null,
+				null);
+		assertEquals(response.getHeaders().getETag(), equivalentResponse.getHeaders().getETag());
+		assertEquals(response.getBody(), equivalentResponse.getBody());
+		for (Move move : equivalentResponse.getBody()) {
+			Solver.applyMove(equivalentRows, move);
+		}
+		assertEquals(true, Solver.isSolution(equivalentRows));
+	}
+	
+	/*
+	 * Requests for equivalent boards coalesce into one search, which solves their
+	 * canonical form, so each request's moves solve its own board
+	 */
+	@Test
+	void solveRubiksDecoder_concurrentEquivalentBoards() throws Exception {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		List<char[][]> boards = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 40, new Random(0));
+			boards.add(i % 2 == 0 ? rows : getEquivalentBoard(rows));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(boards.size());
+		try {
+			List<Future<List<Move>>> solutions = new ArrayList<>();
+			for (char[][] board : boards) {
+				solutions.add(executor.submit(() -> solverAPI.solveRubiksDecoder(board, 3, 6, null, null, null)
+						.getBody()));
+			}
+			for (int i = 0; i < boards.size(); i++) {
+				List<Move> solution = solutions.get(i).get();
+				assertEquals(solutions.get(0).get(), solution);
+				char[][] board = boards.get(i);
+				for (Move move : solution) {
+					Solver.applyMove(board, move);
+				}
+				assertEquals(true, Solver.isSolution(board));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	void getNextMove_followingSolution() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		List<Move> solution = solverAPI.solveRubiksDecoder(rows, 3, 6, "session", null, null).getBody();
+		for (Move move : solution) {
+			ResponseEntity<Move> response = solverAPI.getNextMove(rows, 3, 6, "session");
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertEquals(move, response.getBody());
+			Solver.applyMove(rows, move);
+		}
+		ResponseEntity<Move> response = solverAPI.getNextMove(rows, 3, 6, "session");
+		assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+		assertEquals(null, response.getBody());
+	}
+	
+	/*
+	 * A session's response depends on the session, so it has no ETag and isn't
+	 * cached
+	 */
+	@Test
+	void solveRubiksDecoder_sessionNotCached() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 20, new Random(0));
+		String eTag = SolverAPI.getETag(SearchStrategy.A_STAR, CanonicalBoard.canonicalize(rows));
+		ResponseEntity<List<Move>> response = solverAPI.solveRubiksDecoder(rows, 3, 6, "session", null, eTag);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(null, response.getHeaders().getETag());
+		assertEquals("no-store", response.getHeaders().getCacheControl());
+	}
+	
+	/*
+	 * The stored solution is the configured strategy's, so a TWO_PHASE request
+	 * gets its own, as its ETag promises
+	 */
+	@Test
+	void solveRubiksDecoder_noStoreHitForOtherStrategy() {
+		SolverAPI solverAPI = createSolverAPI(tempDir.resolve("solutions.log").toString(), SearchStrategy.A_STAR);
+		char[][] rows = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		List<Move> twoPhaseSolution = new Solver(DecoderDimensions.STANDARD, SearchStrategy.TWO_PHASE)
+				.solveRubiksDecoder(rows);
+		solverAPI.solveRubiksDecoder(rows, 3, 6, null, null, null);
+		ResponseEntity<List<Move>> response = solverAPI.solveRubiksDecoder(rows, 3, 6, null,
+				SearchStrategy.TWO_PHASE, null);
+		assertEquals(twoPhaseSolution, response.getBody());
+		assertEquals(0L, solverAPI.getStats().get("storeHits"));
+	}
+
+	/*
+	 * Only TWO_PHASE may be asked for instead of the configured strategy
+	 */
+	@Test
+	void solveRubiksDecoder_unsupportedStrategy() {
+		SolverAPI solverAPI = createSolverAPI(SearchStrategy.A_STAR);
+		char[][] rows = DecoderDimensions.STANDARD.createSolvedStateArray();
+		InvalidConfigurationException exception = assertThrows(InvalidConfigurationException.class,
+				() -> solverAPI.solveRubiksDecoder(rows, 3, 6, null, SearchStrategy.PORTFOLIO, null));
+		assertEquals(Collections.singletonList(String.format(SolverAPI.UNSUPPORTED_STRATEGY, SearchStrategy.A_STAR,
+				SearchStrategy.TWO_PHASE)), exception.getErrors());
+		assertEquals(HttpStatus.OK, solverAPI.solveRubiksDecoder(rows, 3, 6, null, SearchStrategy.TWO_PHASE, null)
+				.getStatusCode());
+	}
+
+	/*
+	 * Rotating the decoder or renaming colours doesn't change the canonical form,
+	 * so it doesn't change the ETag either
+	 */
+	@Test
+	void getETag_sameForEquivalentBoards() {
+		char[][] board = { "rybgow".toCharArray(), "rybgo-".toCharArray(), "rybgow".toCharArray() };
+		char[][] equivalentBoard = { "wybgor".toCharArray(), "-ybgor".toCharArray(), "wybgor".toCharArray() };
+		String eTag = SolverAPI.getETag(SearchStrategy.A_STAR, CanonicalBoard.canonicalize(board));
+		assertEquals(eTag, SolverAPI.getETag(SearchStrategy.A_STAR, CanonicalBoard.canonicalize(equivalentBoard)));
+		assertEquals(false,
+				eTag.equals(SolverAPI.getETag(SearchStrategy.TWO_PHASE, CanonicalBoard.canonicalize(board))));
+	}
+	
+	/*
+	 * Which PORTFOLIO search wins can change the solution
+	 */
+	@Test
+	void getETag_weakForPortfolio() {
+		String canonicalBoard = CanonicalBoard.canonicalize(DecoderDimensions.STANDARD.createSolvedStateArray());
+		String eTag = SolverAPI.getETag(SearchStrategy.PORTFOLIO, canonicalBoard);
+		assertEquals(true, eTag.startsWith("W/\""));
+		assertEquals(true, SolverAPI.matchesETag(eTag.substring(2), eTag));
+		assertEquals(false, SolverAPI.getETag(SearchStrategy.A_STAR, canonicalBoard).startsWith("W/"));
+	}
+
+	@Test
+	void matchesETag() {
+		String eTag = SolverAPI.getETag(SearchStrategy.A_STAR,
+				CanonicalBoard.canonicalize(DecoderDimensions.STANDARD.createSolvedStateArray()));
+		assertEquals(false, SolverAPI.matchesETag(null, eTag));
+		assertEquals(true, SolverAPI.matchesETag(eTag, eTag));
+		assertEquals(true, SolverAPI.matchesETag("\"other\", W/" + eTag, eTag));
+		assertEquals(true, SolverAPI.matchesETag("*", eTag));
+		assertEquals(false, SolverAPI.matchesETag("\"other\"", eTag));
+	}
+	
+	/*
+	 * The board turned by four columns, with red and orange swapped
+	 */
+	private static char[][] getEquivalentBoard(char[][] rows) {
+		char[][] equivalentRows = new char[rows.length][rows[0].length];
+		for (int rowNum = 0; rowNum < rows.length; rowNum++) {
+			for (int colNum = 0; colNum < rows[0].length; colNum++) {
+				char square = rows[rowNum][(colNum + 4) % rows[0].length];
+				equivalentRows[rowNum][colNum] = square == 'r' ? 'o' : square == 'o' ? 'r' : square;
+			}
+		}
+		return equivalentRows;
+	}
+}
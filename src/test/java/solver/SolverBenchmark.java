@@ -0,0 +1,91 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import moves.Move;
+
+/*
+ * Shows how solve cost grows with decoder size. Boards are scrambled with random
+ * moves from a solved decoder so that every board is solvable and the
+ * difficulty is comparable across sizes. Then shows how fast SolutionVerifier
+ * replays a solution. By default boards get a full scramble, since a short
+ * one mostly leaves them within the endgame table's reach.
+ *
+ * Usage: SolverBenchmark [boardsPerSize] [scrambleMoves]
+ */
+public class SolverBenchmark {
+
+	public static final int FULL_SCRAMBLE_MOVES = 200;
+
+	private static final List<DecoderDimensions> DIMENSIONS = Arrays.asList(DecoderDimensions.STANDARD,
+			new DecoderDimensions(3, 7), new DecoderDimensions(3, 8), new DecoderDimensions(4, 6),
+			new DecoderDimensions(4, 8));
+
+	public static char[][] generateScrambledInput(DecoderDimensions dimensions, int numMoves, Random random) {
+		char[][] stateArray = dimensions.createSolvedStateArray();
+		Solver solver = new Solver(dimensions);
+		for (int i = 0; i < numMoves; i++) {
+			List<Move> legalMoves = solver.getLegalMoves(stateArray);
+			Solver.applyMove(stateArray, legalMoves.get(random.nextInt(legalMoves.size())));
+		}
+		return stateArray;
+	}
+
+	public static void benchmark(DecoderDimensions dimensions, SearchStrategy searchStrategy, int numBoards,
+			int scrambleMoves) {
+		Random random = new Random(scrambleMoves);
+		Runtime runtime = Runtime.getRuntime();
+		long totalTime = 0;
+		long totalNodes = 0;
+		long totalLookaheads = 0;
+		long totalLookaheadsSkipped = 0;
+		int totalMoves = 0;
+		long peakMemory = 0;
+		for (int i = 0; i < numBoards; i++) {
+			char[][] inputArray = generateScrambledInput(dimensions, scrambleMoves, random);
+			System.gc();
+			long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+			Solver solver = new Solver(dimensions, searchStrategy);
+			long startTime = System.nanoTime();
+			List<Move> solutionPath = solver.solveRubiksDecoder(inputArray);
+			totalTime += System.nanoTime() - startTime;
+			totalNodes += solver.getNodesExpanded();
+			totalLookaheads += solver.getLookaheadsComputed();
+			totalLookaheadsSkipped += solver.getLookaheadsSkipped();
+			totalMoves += solutionPath.size();
+			peakMemory = Math.max(peakMemory, runtime.totalMemory() - runtime.freeMemory() - memoryBefore);
+		}
+		System.out.println(String.format("%-4s %-8s avg time = %8.3f s, avg nodes = %10d, avg moves = %5.1f, heap growth = %5d MB, lookaheads skipped = %5.1f%%",
+				dimensions, searchStrategy, totalTime / (double) numBoards / 1e9, totalNodes / numBoards,
+				totalMoves / (float) numBoards, peakMemory / (1024 * 1024),
+				100.0 * totalLookaheadsSkipped / Math.max(1, totalLookaheads + totalLookaheadsSkipped)));
+	}
+
+	/*
+	 * Replays one solution for a couple of seconds
+	 */
+	public static void benchmarkVerifier(DecoderDimensions dimensions, int scrambleMoves) {
+		char[][] inputArray = generateScrambledInput(dimensions, scrambleMoves, new Random(scrambleMoves));
+		List<Move> moves = new Solver(dimensions).solveRubiksDecoder(inputArray);
+		long numMoves = 0;
+		long startTime = System.nanoTime();
+		while (System.nanoTime() - startTime < 2_000_000_000L) {
+			SolutionVerifier.verify(inputArray, dimensions, moves);
+			numMoves += moves.size();
+		}
+		System.out.println(String.format("%-4s verifier %.1f million moves per second", dimensions, numMoves / 2e6));
+	}
+
+	public static void main(String[] args) {
+		int numBoards = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int scrambleMoves = args.length > 1 ? Integer.parseInt(args[1]) : FULL_SCRAMBLE_MOVES;
+		for (DecoderDimensions dimensions : DIMENSIONS) {
+			for (SearchStrategy searchStrategy : SearchStrategy.values()) {
+				benchmark(dimensions, searchStrategy, numBoards, scrambleMoves);
+			}
+		}
+		benchmarkVerifier(DecoderDimensions.STANDARD, scrambleMoves);
+	}
+}
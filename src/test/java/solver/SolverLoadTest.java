@@ -0,0 +1,194 @@
+package solver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Starts the service on a random local port, replays a corpus of boards against
+ * /solve at a fixed rate and reports latency percentiles, throughput, errors and
+ * the server's /stats counters. Each corpus line is a JSON object such as
+ * {"rows": ["rybgow", "rybgo-", "rybgow"]}. Without a corpus, fully scrambled
+ * standard boards are used instead.
+ *
+ * Latency is measured from when each request was due to be sent, so a server
+ * that can't keep up with the rate shows it in the percentiles rather than by
+ * quietly lowering the rate. A rate of 0 sends requests as fast as the
+ * concurrency allows. Any further arguments are passed on to Spring, e.g.
+ * --solver.store.path=solutions.log to replay with the solution store.
+ *
+ * Usage: SolverLoadTest [corpus path|-] [requestsPerSecond] [concurrency] [numRequests] [--property=value...]
+ */
+public class SolverLoadTest {
+
+	private static final int NUM_GENERATED_BOARDS = 200;
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	public static void main(String[] args) throws Exception {
+		String corpusPath = args.length > 0 ? args[0] : "-";
+		double requestsPerSecond = args.length > 1 ? Double.parseDouble(args[1]) : 20;
+		int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		List<String> corpus = corpusPath.equals("-") ? generateCorpus() : readCorpus(corpusPath);
+		int numRequests = args.length > 3 ? Integer.parseInt(args[3]) : corpus.size();
+		List<String> springArgs = new ArrayList<>(Arrays.asList("--server.port=0", "--solver.store.path="));
+		springArgs.addAll(Arrays.asList(args).subList(Math.min(args.length, 4), args.length));
+
+		ConfigurableApplicationContext context = SpringApplication.run(SolverAPI.class,
+				springArgs.toArray(new String[0]));
+		try {
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			replay(baseUrl, corpus, requestsPerSecond, concurrency, numRequests);
+		} finally {
+			context.close();
+		}
+	}
+
+	public static void replay(String baseUrl, List<String> corpus, double requestsPerSecond, int concurrency,
+			int numRequests) throws InterruptedException, IOException {
+		ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+		Map<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+		AtomicInteger nextRequest = new AtomicInteger();
+		long interval = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < concurrency; i++) {
+			executor.execute(() -> {
+				int requestNum;
+				while ((requestNum = nextRequest.getAndIncrement()) < numRequests) {
+					long dueTime = interval > 0 ? startTime + requestNum * interval : System.nanoTime();
+					long delay;
+					while ((delay = dueTime - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(delay);
+					}
+					String error = sendRequest(baseUrl + "/solve?" + corpus.get(requestNum % corpus.size()));
+					latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueTime));
+					if (error != null) {
+						errors.computeIfAbsent(error, e -> new LongAdder()).increment();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+		long numErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+		System.out.println(String.format("Requests = %d, errors = %d (%.2f%%)", numRequests, numErrors,
+				100.0 * numErrors / Math.max(numRequests, 1)));
+		System.out.println(String.format("Throughput = %.1f requests/s over %.1f s (target %s)",
+				numRequests / elapsedSeconds, elapsedSeconds,
+				requestsPerSecond > 0 ? requestsPerSecond + " requests/s" : "unlimited"));
+		StringBuilder latencyLine = new StringBuilder("Latency (ms):");
+		for (double percentile : PERCENTILES) {
+			latencyLine.append(String.format(" p%s = %.1f,", percentile == (int) percentile
+					? String.valueOf((int) percentile) : String.valueOf(percentile),
+					latencies.getValueAtPercentile(percentile) / 1e3));
+		}
+		latencyLine.append(String.format(" max = %.1f, mean = %.1f", latencies.getMaxValue() / 1e3,
+				latencies.getMean() / 1e3));
+		System.out.println(latencyLine);
+		for (Map.Entry<String, LongAdder> error : errors.entrySet()) {
+			System.out.println("  " + error.getKey() + " = " + error.getValue().sum());
+		}
+		System.out.println("Server stats = " + readResponse(new URL(baseUrl + "/stats")));
+	}
+
+	/*
+	 * Returns null on success, otherwise a short description of what went wrong
+	 */
+	private static String sendRequest(String url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			int status = connection.getResponseCode();
+			InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (body != null) {
+				// Read the whole body so the connection can be reused
+				try (InputStream in = body) {
+					byte[] buffer = new byte[4096];
+					while (in.read(buffer) != -1) {
+					}
+				}
+			}
+			return status == HttpURLConnection.HTTP_OK ? null : "HTTP " + status;
+		} catch (IOException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static String readResponse(URL url) throws IOException {
+		try (InputStream in = url.openStream()) {
+			StringBuilder response = new StringBuilder();
+			byte[] buffer = new byte[4096];
+			int numRead;
+			while ((numRead = in.read(buffer)) != -1) {
+				response.append(new String(buffer, 0, numRead, StandardCharsets.UTF_8));
+			}
+			return response.toString();
+		}
+	}
+
+	private static List<String> readCorpus(String corpusPath) throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<String> corpus = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(corpusPath), StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			JsonNode rowsNode = objectMapper.readTree(line).get("rows");
+			List<String> rows = new ArrayList<>();
+			for (JsonNode rowNode : rowsNode) {
+				rows.add(rowNode.asText());
+			}
+			corpus.add(toQuery(rows));
+		}
+		return corpus;
+	}
+
+	private static List<String> generateCorpus() throws UnsupportedEncodingException {
+		Random random = new Random(SolverBenchmark.FULL_SCRAMBLE_MOVES);
+		List<String> corpus = new ArrayList<>();
+		for (int i = 0; i < NUM_GENERATED_BOARDS; i++) {
+			List<String> rows = new ArrayList<>();
+			for (char[] row : SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD,
+					SolverBenchmark.FULL_SCRAMBLE_MOVES, random)) {
+				rows.add(new String(row));
+			}
+			corpus.add(toQuery(rows));
+		}
+		return corpus;
+	}
+
+	private static String toQuery(List<String> rows) throws UnsupportedEncodingException {
+		StringBuilder query = new StringBuilder();
+		for (String row : rows) {
+			query.append("rows=").append(URLEncoder.encode(row, "UTF-8")).append('&');
+		}
+		return query.append("numRows=").append(rows.size()).append("&numCols=").append(rows.get(0).length())
+				.toString();
+	}
+}
@@ -3,11 +3,13 @@ package solver;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -265,6 +267,224 @@ public class SolverTest {
 		assertEquals(expected, result);
 	}
 	
+	@Test
+	void validateInput_largerDimensions() {
+		char[][] inputArray = {
+				{'-', 'y', 'y', 'g', 'w', 'g'},
+				{'r', 'w', 'y', 'b', 'b', 'b'},
+				{'r', 'o', 'g', 'o', 'o', 'r'},
+				{'r', 'o', 'g', 'b', 'y', 'r'}
+		};
+		List<String> result = Solver.validateInput(inputArray, new DecoderDimensions(4, 6));
+		assertThat(result, containsInAnyOrder(String.format(Solver.WHITE_SQUARES_REQUIRED, 3, 2),
+				String.format(Solver.SQUARES_PER_CHARACTER, 4, 'r', 5)));
+	}
+	
+	@Test
+	void solveRubiksDecoder_largerDimensions() {
+		DecoderDimensions dimensions = new DecoderDimensions(4, 7);
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(dimensions, 8, new Random(0));
+		for (SearchStrategy searchStrategy : SearchStrategy.values()) {
+			char[][] stateArray = copy(inputArray);
+			List<Move> moves = new Solver(dimensions, searchStrategy).solveRubiksDecoder(stateArray);
+			for (Move move : moves) {
+				Solver.applyMove(stateArray, move);
+			}
+			assertEquals(true, Solver.isSolution(stateArray));
+		}
+	}
+	
+	/*
+	 * A reused solver, like a session's, counts each solve's nodes on their own
+	 */
+	@Test
+	void getNodesExpanded_lastSolveOnly() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		Solver solver = new Solver();
+		solver.solveRubiksDecoder(copy(inputArray));
+		long nodesExpanded = solver.getNodesExpanded();
+		solver.solveRubiksDecoder(copy(inputArray));
+		assertEquals(true, nodesExpanded > 0);
+		assertEquals(nodesExpanded, solver.getNodesExpanded());
+		assertEquals(nodesExpanded, solver.getLastSolveStats().getNodesExpanded());
+	}
+	
+	@Test
+	void getLastSolveStats_afterSolve() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		Solver solver = new Solver();
+		solver.solveRubiksDecoder(inputArray);
+		SolveStats solveStats = solver.getLastSolveStats();
+		assertEquals(solver.getNodesExpanded(), solveStats.getNodesExpanded());
+		assertEquals(true, solveStats.getPeakQueueSize() > 0);
+		assertEquals(true, solveStats.getPeakStoredStates() > 0);
+	}
+	
+	@Test
+	void solveRubiksDecoder_boundedSearchMatchesAStar() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 10, new Random(0));
+		List<Move> aStarMoves = new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR).solveRubiksDecoder(inputArray);
+		List<Move> idaStarMoves = new Solver(DecoderDimensions.STANDARD, SearchStrategy.IDA_STAR).solveRubiksDecoder(inputArray);
+		assertEquals(aStarMoves.size(), idaStarMoves.size());
+	}
+	
+	/*
+	 * Most queued states never reach the front of the queue, so their lookahead
+	 * heuristic is never worked out
+	 */
+	@Test
+	void solveRubiksDecoder_lazyLookahead() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(0));
+		Solver solver = new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR);
+		List<Move> solutionPath = solver.solveRubiksDecoder(inputArray);
+		for (Move move : solutionPath) {
+			Solver.applyMove(inputArray, move);
+		}
+		assertEquals(true, Solver.isSolution(inputArray));
+		assertEquals(true, solver.getStatesRequeued() <= solver.getLookaheadsComputed());
+		assertEquals(true, solver.getLookaheadsSkipped() > solver.getLookaheadsComputed());
+	}
+	
+	/*
+	 * A fully scrambled board takes far longer than 1 ms, alone or raced
+	 */
+	@Test
+	void solveRubiksDecoder_timeLimit() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 200,
+				new Random(200));
+		assertThrows(SolveTimeoutException.class, () -> new Solver().solveRubiksDecoder(inputArray, 1));
+		Solver portfolioSolver = new Solver(DecoderDimensions.STANDARD, SearchStrategy.PORTFOLIO);
+		assertThrows(SolveTimeoutException.class, () -> portfolioSolver.solveRubiksDecoder(inputArray, 1));
+	}
+	
+	@Test
+	void solveRubiksDecoder_portfolio() {
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 30, new Random(2));
+		Solver solver = new Solver(DecoderDimensions.STANDARD, SearchStrategy.PORTFOLIO);
+		List<Move> solutionPath = solver.solveRubiksDecoder(inputArray);
+		for (Move move : solutionPath) {
+			Solver.applyMove(inputArray, move);
+		}
+		assertEquals(true, Solver.isSolution(inputArray));
+		assertEquals(true, Solver.PORTFOLIO_STRATEGIES.contains(solver.getWinningStrategy()));
+		assertEquals(true, Solver.getPortfolioWins().get(solver.getWinningStrategy()) > 0);
+	}
+	
+	/*
+	 * A portfolio win goes to the strategy that found the shortest solution, not
+	 * to the search that returned it
+	 */
+	@Test
+	void incumbent_keepsShortestOffer() {
+		Incumbent incumbent = new Incumbent();
+		List<Move> shortPath = Arrays.asList(new SlideMove(MoveType.MU));
+		incumbent.offer(Arrays.asList(new SlideMove(MoveType.MU), new SlideMove(MoveType.TD)), SearchStrategy.A_STAR);
+		incumbent.offer(shortPath, SearchStrategy.IDA_STAR);
+		incumbent.offer(Arrays.asList(new SlideMove(MoveType.BU)), SearchStrategy.WEIGHTED_A_STAR);
+		assertEquals(shortPath, incumbent.getSolutionPath());
+		assertEquals(SearchStrategy.IDA_STAR, incumbent.getSolution().getStrategy());
+	}
+	
+	/*
+	 * The fast mode stops at the endgame table instead of searching on for a
+	 * shorter solution
+	 */
+	@Test
+	void solveRubiksDecoder_twoPhaseExpandsFewerNodes() {
+		Random random = new Random(4);
+		for (int i = 0; i < 5; i++) {
+			char[][] inputArray = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 40, random);
+			Solver aStarSolver = new Solver(DecoderDimensions.STANDARD, SearchStrategy.A_STAR);
+			aStarSolver.solveRubiksDecoder(copy(inputArray));
+			Solver twoPhaseSolver = new Solver(DecoderDimensions.STANDARD, SearchStrategy.TWO_PHASE);
+			List<Move> solutionPath = twoPhaseSolver.solveRubiksDecoder(inputArray);
+			for (Move move : solutionPath) {
+				Solver.applyMove(inputArray, move);
+			}
+			assertEquals(true, Solver.isSolution(inputArray));
+			assertEquals(true, twoPhaseSolver.getNodesExpanded() <= aStarSolver.getNodesExpanded());
+		}
+	}
+	
+	/*
+	 * A bigger board takes TWO_PHASE more than one round of MAX_TWO_PHASE_NODES,
+	 * but no round stores more than the successors of that many nodes
+	 */
+	@Test
+	void solveRubiksDecoder_twoPhaseNodeCap() {
+		DecoderDimensions dimensions = new DecoderDimensions(3, 8);
+		char[][] inputArray = SolverBenchmark.generateScrambledInput(dimensions, 200, new Random(1));
+		Solver solver = new Solver(dimensions, SearchStrategy.TWO_PHASE);
+		List<Move> solutionPath = solver.solveRubiksDecoder(copy(inputArray));
+		for (Move move : solutionPath) {
+			Solver.applyMove(inputArray, move);
+		}
+		assertEquals(true, Solver.isSolution(inputArray));
+		assertEquals(true, solver.getNodesExpanded() > Solver.MAX_TWO_PHASE_NODES);
+		assertEquals(true, solver.getLastSolveStats().getPeakStoredStates()
+				<= 1 + Solver.MAX_TWO_PHASE_NODES * (2 * dimensions.getNumRows() + 2));
+	}
+	
+	/*
+	 * Boards the endgame table solves are easiest, whatever their heuristic
+	 */
+	@Test
+	void estimateDifficulty_endgameBoard() {
+		Solver solver = new Solver();
+		char[][] nearlySolved = SolverBenchmark.generateScrambledInput(DecoderDimensions.STANDARD, 2, new Random(0));
+		assertEquals(0f, solver.estimateDifficulty(nearlySolved));
+		char[][] unsolved = { "ybrgow".toCharArray(), "rbgyo-".toCharArray(), "gobywr".toCharArray() };
+		assertEquals(true, solver.estimateDifficulty(unsolved) > 0);
+	}
+	
+	/*
+	 * A 3x8 board's heuristic is scaled up by its 24 cells to a standard board's 18
+	 */
+	@Test
+	void estimateDifficulty_scaledUpForLargerBoard() {
+		DecoderDimensions dimensions = new DecoderDimensions(3, 8);
+		char[][] stateArray = SolverBenchmark.generateScrambledInput(dimensions, 200, new Random(0));
+		HeuristicMemo heuristicMemo = new HeuristicMemo(HeuristicMemo.DEFAULT_MEMORY_BUDGET);
+		heuristicMemo.put(PackedState.pack(stateArray), 30);
+		Solver solver = new Solver(dimensions, SearchStrategy.A_STAR, EndgameTable.forDimensions(dimensions),
+				heuristicMemo);
+		assertEquals(40f, solver.estimateDifficulty(stateArray));
+	}
+	
+	/*
+	 * TWO_PHASE's rounds are capped, so it never waits behind full searches
+	 */
+	@Test
+	void estimateDifficulty_twoPhase() {
+		char[][] unsolved = { "ybrgow".toCharArray(), "rbgyo-".toCharArray(), "gobywr".toCharArray() };
+		assertEquals(true, new Solver().estimateDifficulty(unsolved) > 0);
+		assertEquals(0f, new Solver(DecoderDimensions.STANDARD, SearchStrategy.TWO_PHASE).estimateDifficulty(unsolved));
+	}
+	
+	@Test
+	void packedState_roundTrip() {
+		char[][] stateArray = new DecoderDimensions(4, 10).createSolvedStateArray();
+		PackedState packedState = PackedState.pack(stateArray);
+		assertEquals(true, Arrays.deepEquals(stateArray, packedState.unpack(4, 10)));
+		assertEquals(packedState, PackedState.pack(copy(stateArray)));
+	}
+	
+	@Test
+	void getMoveDescription_numberedRow() {
+		assertEquals("Row 4, rotate left by 2", new RotateMove(MoveType.RL, 2, 3).getMoveDescription());
+		assertEquals("Row 2, slide up", new SlideMove(MoveType.SU, 1).getMoveDescription());
+		assertEquals(MoveType.BU, MoveType.slide(2, 3, false));
+		assertEquals(MoveType.SU, MoveType.slide(2, 4, false));
+	}
+	
+	private static char[][] copy(char[][] stateArray) {
+		char[][] stateArrayCopy = new char[stateArray.length][];
+		for (int rowNum = 0; rowNum < stateArray.length; rowNum++) {
+			stateArrayCopy[rowNum] = Arrays.copyOf(stateArray[rowNum], stateArray[rowNum].length);
+		}
+		return stateArrayCopy;
+	}
+	
 	public static char[][] generateRandomInput() {
 		List<Character> charList = new ArrayList<>(Solver.CHAR_LIST); // Modifiable copy
 		Collections.shuffle(charList);